@@ -0,0 +1,73 @@
+package Benchmarks;
+
+import Control.Operations;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares verifying a batch of signatures one at a time with verifying them all at once. The signatures are spread
+ * over a few signers, as they would be when checking a log of signed messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchVerifyBenchmark {
+
+    @Param({"16", "256"})
+    public int count;
+
+    private static final int SIGNERS = 4;
+
+    private byte[][] sigs;
+
+    private byte[][] ms;
+
+    private byte[][] pubKeys;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(487);
+        byte[][] pws = new byte[SIGNERS][];
+        byte[][] keys = new byte[SIGNERS][];
+        for (int i = 0; i < SIGNERS; i++) {
+            pws[i] = ("signer " + i).getBytes(StandardCharsets.UTF_8);
+            keys[i] = Operations.keyPair(pws[i]);
+        }
+        sigs = new byte[count][];
+        ms = new byte[count][];
+        pubKeys = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            ms[i] = new byte[64];
+            rand.nextBytes(ms[i]);
+            sigs[i] = Operations.createSig(ms[i], pws[i % SIGNERS]);
+            pubKeys[i] = keys[i % SIGNERS].clone();
+        }
+    }
+
+    @Benchmark
+    public boolean[] verifyEach() {
+        boolean[] valid = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            valid[i] = Operations.verifySig(sigs[i], ms[i], pubKeys[i]);
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public boolean[] verifyBatch() {
+        return Operations.verifySigs(sigs, ms, pubKeys);
+    }
+}
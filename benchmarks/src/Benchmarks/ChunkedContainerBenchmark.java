@@ -0,0 +1,77 @@
+package Benchmarks;
+
+import Control.ChunkedContainer;
+import Control.Operations;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares reading 4 KB from the middle of a 16 MB encrypted file, which needs the whole symmetricEncrypt output
+ * decrypted but only one chunk of a ChunkedContainer, and decrypting the whole container.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkedContainerBenchmark {
+
+    private static final int SIZE = 1 << 24;
+
+    private final byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+
+    private byte[] symmetric;
+
+    private Path file;
+
+    private ChunkedContainer container;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] m = new byte[SIZE];
+        new Random(487).nextBytes(m);
+        symmetric = Operations.symmetricEncrypt(m, pw);
+        file = Files.createTempFile("container", ".bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ChunkedContainer.encrypt(new ByteArrayInputStream(m), out, pw);
+        }
+        container = ChunkedContainer.open(file, pw);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        container.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] symmetricDecryptWhole() {
+        return Operations.symmetricDecrypt(symmetric, pw);
+    }
+
+    @Benchmark
+    public byte[] containerRead() throws IOException {
+        return container.read(SIZE / 2 - 100, 4096);
+    }
+
+    @Benchmark
+    public boolean containerDecryptWhole() throws IOException {
+        return container.decrypt(OutputStream.nullOutputStream());
+    }
+}
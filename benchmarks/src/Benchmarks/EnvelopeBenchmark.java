@@ -0,0 +1,62 @@
+package Benchmarks;
+
+import Control.Operations;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares encrypting the same data for several recipients with one asEncrypt per recipient against a single
+ * envelopeEncrypt, which encrypts the data once and only the content key per recipient.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvelopeBenchmark {
+
+    @Param({"10"})
+    private int recipients;
+
+    @Param({"1024", "1048576"})
+    private int size;
+
+    private byte[][] pubKeys;
+
+    private byte[] m;
+
+    @Setup
+    public void setup() {
+        pubKeys = new byte[recipients][];
+        for (int i = 0; i < recipients; i++) {
+            pubKeys[i] = Operations.keyPair(("password" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        m = new byte[size];
+        new Random(487).nextBytes(m);
+    }
+
+    @Benchmark
+    public byte[][] asEncryptEach() {
+        byte[][] out = new byte[recipients][];
+        for (int i = 0; i < recipients; i++) {
+            out[i] = Operations.asEncrypt(m, pubKeys[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[] envelopeEncrypt() {
+        return Operations.envelopeEncrypt(m, pubKeys);
+    }
+}
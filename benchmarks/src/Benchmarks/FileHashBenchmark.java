@@ -0,0 +1,66 @@
+package Benchmarks;
+
+import Control.Operations;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares hashing a file read all at once, read as a stream, and memory mapped. The file stays in the page cache
+ * between invocations, so this measures the copying and hashing rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FileHashBenchmark {
+
+    @Param({"1048576", "268435456"})
+    public int size;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] m = new byte[size];
+        new Random(487).nextBytes(m);
+        file = Files.createTempFile("hash", ".bin");
+        Files.write(file, m);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] readAllBytes() throws IOException {
+        return Operations.computeHash(Files.readAllBytes(file));
+    }
+
+    @Benchmark
+    public byte[] stream() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Operations.computeHash(in);
+        }
+    }
+
+    @Benchmark
+    public byte[] mapped() throws IOException {
+        return Operations.computeHash(file);
+    }
+}
@@ -0,0 +1,47 @@
+package Benchmarks;
+
+import Control.KeyCache;
+import Control.Operations;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares generating a public key from a password each time with looking it up in a KeyCache that already holds
+ * it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyCacheBenchmark {
+
+    private final byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+
+    private final KeyCache cache = new KeyCache(16);
+
+    @Setup
+    public void setup() {
+        cache.publicKey(pw);
+    }
+
+    @Benchmark
+    public byte[] keyPair() {
+        return Operations.keyPair(pw);
+    }
+
+    @Benchmark
+    public byte[] cachedPublicKey() {
+        return cache.publicKey(pw);
+    }
+}
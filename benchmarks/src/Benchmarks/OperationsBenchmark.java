@@ -0,0 +1,74 @@
+package Benchmarks;
+
+import Control.Operations;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Measures the end to end operations the Controller performs for the user, without the file and password dialogs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OperationsBenchmark {
+
+    @Param({"64", "1048576"})
+    public int size;
+
+    private final byte[] pw = "benchmark password".getBytes(StandardCharsets.UTF_8);
+
+    private byte[] m;
+
+    private byte[] pubKey;
+
+    private byte[] sig;
+
+    @Setup
+    public void setup() {
+        m = new byte[size];
+        new Random(487).nextBytes(m);
+        pubKey = Operations.keyPair(pw);
+        sig = Operations.createSig(m, pw);
+    }
+
+    @Benchmark
+    public byte[] symmetricEncrypt() {
+        return Operations.symmetricEncrypt(m, pw);
+    }
+
+    @Benchmark
+    public void symmetricEncryptStream() throws IOException {
+        Operations.symmetricEncrypt(new ByteArrayInputStream(m), OutputStream.nullOutputStream(), pw);
+    }
+
+    @Benchmark
+    public byte[] asEncrypt() {
+        return Operations.asEncrypt(m, pubKey);
+    }
+
+    @Benchmark
+    public byte[] createSig() {
+        return Operations.createSig(m, pw);
+    }
+
+    @Benchmark
+    public boolean verifySig() {
+        return Operations.verifySig(sig, m, pubKey);
+    }
+}
@@ -0,0 +1,61 @@
+package Benchmarks;
+
+import Control.Operations;
+import Control.PublicKeyCache;
+import Model.E521CurvePoint;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares the part of an encryption that depends on the public key, decoding it and multiplying it by the secret
+ * k, when the key is decoded each time with when it is looked up in a PublicKeyCache that already holds it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublicKeyCacheBenchmark {
+
+    private final byte[] pub = Operations.keyPair("password".getBytes(StandardCharsets.UTF_8));
+
+    private final BigInteger k = new BigInteger(512, new Random(1)).shiftLeft(2);
+
+    private final PublicKeyCache cache = new PublicKeyCache(16);
+
+    private final byte[] m = new byte[64];
+
+    @Setup
+    public void setup() {
+        cache.get(pub);
+    }
+
+    @Benchmark
+    public E521CurvePoint decodeAndMultiply() {
+        E521CurvePoint v = new E521CurvePoint(new BigInteger(Arrays.copyOf(pub, 66)), pub[66] == 1);
+        return v.scalarMultiplySecret(k);
+    }
+
+    @Benchmark
+    public E521CurvePoint cachedMultiply() {
+        return cache.get(pub).scalarMultiplySecret(k);
+    }
+
+    @Benchmark
+    public byte[] asEncrypt() {
+        return Operations.asEncrypt(m, pub);
+    }
+}
@@ -0,0 +1,70 @@
+package Benchmarks;
+
+import Control.Operations;
+import Control.Signer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares signing a batch of 64 short messages with Operations.createSig, which derives the key again for every
+ * message, with a Signer that derives it once, signing one message at a time and with signAll on the common pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignerBenchmark {
+
+    private static final int COUNT = 64;
+
+    private final byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[][] ms = new byte[COUNT][];
+
+    private Signer signer;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(487);
+        for (int i = 0; i < COUNT; i++) {
+            ms[i] = new byte[256];
+            rand.nextBytes(ms[i]);
+        }
+        signer = new Signer(pw);
+    }
+
+    @Benchmark
+    public byte[][] createSig() {
+        byte[][] out = new byte[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            out[i] = Operations.createSig(ms[i], pw);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[][] signer() {
+        byte[][] out = new byte[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            out[i] = signer.sign(ms[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[][] signAll() {
+        return signer.signAll(ms);
+    }
+}
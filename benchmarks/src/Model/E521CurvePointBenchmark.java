@@ -0,0 +1,63 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Measures E521CurvePoint addition and scalar multiplication. Scalars are 4 times a random 512 bit value, the same
+ * form used for keys and nonces by the application.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class E521CurvePointBenchmark {
+
+    private E521CurvePoint p1;
+
+    private E521CurvePoint p2;
+
+    private BigInteger k;
+
+    private BigInteger k2;
+
+    @Setup
+    public void setup() {
+        SecureRandom r = new SecureRandom();
+        p1 = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+        p2 = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+        k = new BigInteger(512, r).multiply(BigInteger.valueOf(4));
+        k2 = new BigInteger(512, r);
+    }
+
+    @Benchmark
+    public E521CurvePoint add() {
+        return p1.add(p2);
+    }
+
+    @Benchmark
+    public E521CurvePoint scalarMultiplyFixedBase() {
+        return E521CurvePoint.g.scalarMultiply(k);
+    }
+
+    @Benchmark
+    public E521CurvePoint scalarMultiplyVariableBase() {
+        return p1.scalarMultiply(k);
+    }
+
+    @Benchmark
+    public E521CurvePoint multiScalarFixedAndVariableBase() {
+        return E521CurvePoint.multiScalar(new BigInteger[] {k, k2}, new E521CurvePoint[] {E521CurvePoint.g, p1});
+    }
+}
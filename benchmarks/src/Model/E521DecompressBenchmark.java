@@ -0,0 +1,69 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Measures decompressing public keys from their x coordinate and the least significant bit of y. bigInteger is the
+ * earlier BigInteger computation, with a modInverse and a modPow, kept here for comparison. single uses
+ * E521CurvePoint(x, yLsb) and batch decompresses 64 keys with one call to E521CurvePoint.decompress; its time is for
+ * all 64.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class E521DecompressBenchmark {
+
+    private static final int COUNT = 64;
+
+    private static final BigInteger p = E521CurvePoint.p;
+
+    private final BigInteger[] xs = new BigInteger[COUNT];
+
+    private final boolean[] lsbs = new boolean[COUNT];
+
+    @Setup
+    public void setup() {
+        SecureRandom r = new SecureRandom();
+        for (int i = 0; i < COUNT; i++) {
+            E521CurvePoint v = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+            xs[i] = v.getX();
+            lsbs[i] = v.getY().testBit(0);
+        }
+    }
+
+    @Benchmark
+    public BigInteger bigInteger() {
+        BigInteger x = xs[0];
+        BigInteger radicand = BigInteger.ONE.subtract(x.modPow(BigInteger.TWO, p));
+        radicand = radicand.multiply(BigInteger.ONE.add(BigInteger.valueOf(376014L).multiply(x.modPow(BigInteger.TWO,
+                p))).modInverse(p));
+        BigInteger y = radicand.modPow(p.shiftRight(2).add(BigInteger.ONE), p);
+        if (y.testBit(0) != lsbs[0]) {
+            y = p.subtract(y);
+        }
+        return y.multiply(y).subtract(radicand).mod(p).signum() == 0 ? y : null;
+    }
+
+    @Benchmark
+    public E521CurvePoint single() {
+        return new E521CurvePoint(xs[0], lsbs[0]);
+    }
+
+    @Benchmark
+    public E521CurvePoint[] batch() {
+        return E521CurvePoint.decompress(xs, lsbs);
+    }
+}
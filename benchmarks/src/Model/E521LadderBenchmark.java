@@ -0,0 +1,71 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares scalarMultiply with the constant time scalarMultiplySecret, for g through the fixed base table and for
+ * another point through the ladder, for scalars of very different shapes: a small
+ * scalar, 4 times a random 512 bit value as used for keys and nonces, and a 514 bit scalar with every bit set. The
+ * times for scalarMultiplySecret should not depend on the shape, while those of scalarMultiply do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class E521LadderBenchmark {
+
+    @Param({"small", "random", "dense"})
+    public String scalar;
+
+    private E521CurvePoint p1;
+
+    private BigInteger k;
+
+    @Setup
+    public void setup() {
+        SecureRandom r = new SecureRandom();
+        p1 = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+        switch (scalar) {
+            case "small":
+                k = BigInteger.valueOf(4);
+                break;
+            case "dense":
+                k = BigInteger.ONE.shiftLeft(514).subtract(BigInteger.ONE);
+                break;
+            default:
+                k = new BigInteger(512, r).multiply(BigInteger.valueOf(4));
+        }
+    }
+
+    @Benchmark
+    public E521CurvePoint fixedBase() {
+        return E521CurvePoint.g.scalarMultiply(k);
+    }
+
+    @Benchmark
+    public E521CurvePoint fixedBaseSecret() {
+        return E521CurvePoint.g.scalarMultiplySecret(k);
+    }
+
+    @Benchmark
+    public E521CurvePoint variableBase() {
+        return p1.scalarMultiply(k);
+    }
+
+    @Benchmark
+    public E521CurvePoint ladder() {
+        return p1.scalarMultiplySecret(k);
+    }
+}
@@ -0,0 +1,87 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Measures the garbage produced per tag of a message that is already in memory. Run with -prof gc and compare
+ * gc.alloc.rate.norm: compute builds a new instance and output array for every call, keyed absorbs the key into a new
+ * instance each time, while reused and reusedDirect restore a keyed instance with set and squeeze into a
+ * preallocated array, which should allocate nothing at all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KMACAllocationBenchmark {
+
+    @Param({"64", "4096"})
+    public int size;
+
+    private final byte[] s = "T".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] key = new byte[64];
+
+    private final byte[] out = new byte[64];
+
+    private byte[] x;
+
+    private ByteBuffer direct;
+
+    private KMACXOF256 keyed;
+
+    private KMACXOF256 kmac;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(487);
+        r.nextBytes(key);
+        x = new byte[size];
+        r.nextBytes(x);
+        direct = ByteBuffer.allocateDirect(size);
+        direct.put(x).flip();
+        keyed = new KMACXOF256(key, s);
+        kmac = keyed.copy();
+    }
+
+    @Benchmark
+    public byte[] compute() {
+        return KMACXOF256.compute(key, x, 512, s);
+    }
+
+    @Benchmark
+    public byte[] keyed() {
+        KMACXOF256 k = new KMACXOF256(key, s);
+        k.update(x);
+        k.squeeze(out, 0, out.length);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] reused() {
+        kmac.set(keyed);
+        kmac.update(x);
+        kmac.squeeze(out, 0, out.length);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] reusedDirect() {
+        kmac.set(keyed);
+        kmac.update(direct.clear());
+        kmac.squeeze(out, 0, out.length);
+        return out;
+    }
+}
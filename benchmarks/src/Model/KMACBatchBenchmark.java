@@ -0,0 +1,75 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Compares tagging a batch of 1024 short messages one call at a time with KMACXOF256.compute against a single
+ * KMACXOF256.computeBatch call, and against a KMACXOF256Cache that already holds all of the keys, as it would for a
+ * service that sees the same keys again and again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KMACBatchBenchmark {
+
+    private static final int COUNT = 1024;
+
+    @Param({"64", "512"})
+    public int size;
+
+    private final byte[] s = "T".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[][] keys = new byte[COUNT][];
+
+    private final byte[][] xs = new byte[COUNT][];
+
+    private final KMACXOF256Cache cache = new KMACXOF256Cache(COUNT);
+
+    @Setup
+    public void setup() {
+        Random r = new Random(487);
+        for (int i = 0; i < COUNT; i++) {
+            keys[i] = new byte[16];
+            r.nextBytes(keys[i]);
+            xs[i] = new byte[size];
+            r.nextBytes(xs[i]);
+            cache.get(keys[i], s);
+        }
+    }
+
+    @Benchmark
+    public byte[][] compute() {
+        byte[][] out = new byte[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            out[i] = KMACXOF256.compute(keys[i], xs[i], 512, s);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[][] computeBatch() {
+        return KMACXOF256.computeBatch(keys, xs, 512, s);
+    }
+
+    @Benchmark
+    public byte[][] computeCached() {
+        byte[][] out = new byte[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            out[i] = cache.compute(keys[i], xs[i], 512, s);
+        }
+        return out;
+    }
+}
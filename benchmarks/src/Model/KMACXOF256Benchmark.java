@@ -0,0 +1,47 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Measures KMACXOF256.compute with a 64 byte key and 512 bit output over messages from empty up to 1 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class KMACXOF256Benchmark {
+
+    @Param({"0", "64", "1024", "65536", "1048576", "67108864", "1073741824"})
+    public int size;
+
+    private final byte[] key = new byte[64];
+
+    private final byte[] s = "T".getBytes(StandardCharsets.UTF_8);
+
+    private byte[] x;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(487);
+        r.nextBytes(key);
+        x = new byte[size];
+        r.nextBytes(x);
+    }
+
+    @Benchmark
+    public byte[] compute() {
+        return KMACXOF256.compute(key, x, 512, s);
+    }
+}
@@ -0,0 +1,48 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Measures the Keccak1600 sponge. Absorbing one full 136 byte block performs exactly one permutation, so the time
+ * per operation is the cost of a permutation plus XORing in the 17 lanes of the block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Keccak1600Benchmark {
+
+    private final Keccak1600 sponge = new Keccak1600();
+
+    private final byte[] block = new byte[136];
+
+    private final byte[] out = new byte[136];
+
+    @Setup
+    public void setup() {
+        new Random(487).nextBytes(block);
+    }
+
+    @Benchmark
+    public Keccak1600 absorbBlock() {
+        sponge.sha3Update(block, 0, block.length);
+        return sponge;
+    }
+
+    @Benchmark
+    public byte[] squeezeBlock() {
+        sponge.sha3Squeeze(out, 0, out.length);
+        return out;
+    }
+}
@@ -0,0 +1,71 @@
+package Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TCSS 487
+    Project
+    Benchmarks
+ */
+
+/**
+ * Measures how the throughput of ParallelHash256 scales with the number of threads in its pool, next to the
+ * sequential KMACXOF256 for the same input. The input is a direct buffer so that it is hashed in place, as it would
+ * be from a memory mapped file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ParallelHash256Benchmark {
+
+    @Param({"268435456"})
+    public int size;
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int threads;
+
+    @Param({"8192"})
+    public int blockSize;
+
+    private final byte[] s = new byte[0];
+
+    private ByteBuffer data;
+
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        byte[] x = new byte[size];
+        new Random(487).nextBytes(x);
+        data = ByteBuffer.allocateDirect(size);
+        data.put(x).flip();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public byte[] parallelHash() {
+        ParallelHash256 hash = new ParallelHash256(blockSize, s, pool);
+        hash.update(data.duplicate());
+        return hash.digest(512);
+    }
+
+    @Benchmark
+    public byte[] kmacxof256() {
+        KMACXOF256 kmac = new KMACXOF256(new byte[0], s);
+        kmac.update(data.duplicate());
+        return kmac.squeeze(64);
+    }
+}
@@ -0,0 +1,427 @@
+package Control;
+
+import Model.KMACXOF256;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Password encrypted file split into fixed size chunks that can each be decrypted and authenticated on their own,
+ * so any range of bytes can be read without decrypting the rest of the file.
+ * The file is z || chunkSize || check followed by c_i || t_i for each chunk i, where z is 64 random bytes and
+ * (ke || ka || check) = KMACXOF256(z || pw, chunkSize, 1536, "C"). Every chunk holds chunkSize bytes of plaintext
+ * except the last, which holds fewer and may be empty. Chunk i has the keystream KMACXOF256(ke, i, 8|m_i|, "CKE")
+ * and the tag t_i = KMACXOF256(ka, i || last || m_i, 512, "CKA"), with i as 8 bytes and last a byte that is 1 only
+ * for the last chunk, so chunks cannot be reordered or dropped from the end without a tag failing.
+ * Since the chunk size is fixed, the position of chunk i follows from the header alone, and chunks are encrypted
+ * and decrypted in parallel batches.
+ */
+public class ChunkedContainer implements Closeable {
+
+    /**
+     * Chunk size used when none is given.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Largest chunk size allowed, so that a batch never holds more than BATCH_BYTES of plaintext.
+     */
+    static final int MAX_CHUNK_SIZE = 1 << 22;
+
+    /**
+     * Length of the header, z || chunkSize || check.
+     */
+    static final int HEADER = 64 + 4 + 64;
+
+    /**
+     * Most chunks encrypted or decrypted in parallel before they are written.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * Most plaintext bytes held by a batch, which limits it to fewer chunks when they are large.
+     */
+    private static final int BATCH_BYTES = 1 << 22;
+
+    /**
+     * File the chunks are read from.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Keys of this file.
+     */
+    private final Keys keys;
+
+    /**
+     * Number of plaintext bytes in every chunk but the last.
+     */
+    private final int chunkSize;
+
+    /**
+     * Number of chunks, at least 1.
+     */
+    private final long chunks;
+
+    /**
+     * Number of plaintext bytes in the file.
+     */
+    private final long length;
+
+    /**
+     * Creates a reader for an opened container.
+     * @param channel file the chunks are read from
+     * @param keys keys of the file
+     * @param chunkSize number of plaintext bytes in every chunk but the last
+     * @param chunks number of chunks
+     * @param length number of plaintext bytes
+     */
+    private ChunkedContainer(FileChannel channel, Keys keys, int chunkSize, long chunks, long length) {
+        this.channel = channel;
+        this.keys = keys;
+        this.chunkSize = chunkSize;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    /**
+     * Encrypts the data read from an InputStream into a container with DEFAULT_CHUNK_SIZE byte chunks.
+     * @param in data to encrypt, read until the end of the stream
+     * @param out where the container is written
+     * @param pw password
+     * @throws IOException if reading or writing fails.
+     */
+    public static void encrypt(InputStream in, OutputStream out, byte[] pw) throws IOException {
+        encrypt(in, out, pw, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Encrypts the data read from an InputStream into a container. The data is read a batch of chunks at a time,
+     * the chunks of a batch are encrypted in parallel and then written in order, so the data does not need to fit
+     * in memory.
+     * @param in data to encrypt, read until the end of the stream
+     * @param out where the container is written
+     * @param pw password
+     * @param chunkSize number of plaintext bytes per chunk, between 1 and MAX_CHUNK_SIZE
+     * @throws IOException if reading or writing fails.
+     * @throws IllegalArgumentException if chunkSize is out of range.
+     */
+    public static void encrypt(InputStream in, OutputStream out, byte[] pw, int chunkSize) throws IOException {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize = " + chunkSize + ". Must be between 1 and "
+                    + MAX_CHUNK_SIZE + ".");
+        }
+        byte[] header = new byte[HEADER];
+        new SecureRandom().nextBytes(header);
+        ByteBuffer.wrap(header, 64, 4).putInt(chunkSize);
+        Keys keys = new Keys(header, pw);
+        System.arraycopy(keys.check, 0, header, 68, 64);
+        out.write(header);
+        int batchChunks = batchChunks(chunkSize);
+        long index = 0;
+        boolean done = false;
+        while (!done) {
+            List<byte[]> batch = new ArrayList<>();
+            while (batch.size() < batchChunks && !done) {
+                byte[] m = in.readNBytes(chunkSize);
+                batch.add(m);
+                //Only a short chunk is known to be the last, so input that fills its last chunk gets an empty one.
+                done = m.length < chunkSize;
+            }
+            long first = index;
+            boolean lastBatch = done;
+            byte[][] tags = new byte[batch.size()][];
+            IntStream.range(0, batch.size()).parallel().forEach(i -> tags[i] = keys.seal(first + i,
+                    lastBatch && i == batch.size() - 1, batch.get(i)));
+            for (int i = 0; i < tags.length; i++) {
+                out.write(batch.get(i));
+                out.write(tags[i]);
+            }
+            index += batch.size();
+        }
+    }
+
+    /**
+     * Opens a container for reading. Only the header is read, so this takes the same time whatever the size of
+     * the file.
+     * @param file container written by encrypt
+     * @param pw password
+     * @return reader for the container, or null if file is not a container or pw is not its password
+     * @throws IOException if the file cannot be read.
+     */
+    public static ChunkedContainer open(Path file, byte[] pw) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            if (!readFully(channel, header, 0)) return null;
+            long body = channel.size() - HEADER;
+            int chunkSize = header.getInt(64);
+            if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) return null;
+            long stride = chunkSize + 64L;
+            long lastLen = body % stride - 64;
+            if (body < 64 || lastLen < 0) return null;
+            Keys keys = new Keys(header.array(), pw);
+            if (!MessageDigest.isEqual(keys.check, Arrays.copyOfRange(header.array(), 68, HEADER))) return null;
+            long chunks = body / stride + 1;
+            ChunkedContainer container = new ChunkedContainer(channel, keys, chunkSize, chunks,
+                    (chunks - 1) * chunkSize + lastLen);
+            channel = null;
+            return container;
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of plaintext bytes in the container.
+     * @return length of the decrypted data
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Decrypts a range of the data. Only the chunks holding the range are read and authenticated, in parallel.
+     * @param pos position of the first byte in the decrypted data
+     * @param len number of bytes
+     * @return decrypted bytes, or null if the tag of any chunk holding the range did not match
+     * @throws IOException if reading fails.
+     * @throws IllegalArgumentException if the range is not within the data.
+     */
+    public byte[] read(long pos, int len) throws IOException {
+        if (pos < 0 || len < 0 || pos > length - len) {
+            throw new IllegalArgumentException("Range " + pos + " + " + len + " is not within " + length
+                    + " bytes.");
+        }
+        if (len == 0) return new byte[0];
+        long first = pos / chunkSize;
+        byte[][] ms = chunks(first, (pos + len - 1) / chunkSize + 1);
+        if (ms == null) return null;
+        byte[] out = new byte[len];
+        int have = 0;
+        int skip = (int) (pos - first * chunkSize);
+        for (byte[] m : ms) {
+            int n = Math.min(m.length - skip, len - have);
+            System.arraycopy(m, skip, out, have, n);
+            have += n;
+            skip = 0;
+        }
+        return out;
+    }
+
+    /**
+     * Decrypts the whole container to an OutputStream, a batch of chunks at a time. Each batch is written once all
+     * of its chunks have matched their tags, so if this returns false what was written is authentic but incomplete
+     * and must still be discarded.
+     * @param out where the decrypted data is written
+     * @return true if every tag matched, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public boolean decrypt(OutputStream out) throws IOException {
+        int batchChunks = batchChunks(chunkSize);
+        for (long first = 0; first < chunks; first += batchChunks) {
+            byte[][] ms = chunks(first, Math.min(chunks, first + batchChunks));
+            if (ms == null) return false;
+            for (byte[] m : ms) {
+                out.write(m);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decrypts the whole container into a file. The plaintext is written to a temporary file in the same directory
+     * and only renamed to out once every tag has matched.
+     * @param out file to write the decrypted data to, replaced if it exists
+     * @return true if every tag matched and out was written, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public boolean decrypt(Path out) throws IOException {
+        return Operations.decryptToFile(out, this::decrypt);
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException if closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads and decrypts chunks from to until, exclusive, in parallel.
+     * @param from index of the first chunk
+     * @param until index after the last chunk
+     * @return plaintext of each chunk, or null if any tag did not match
+     * @throws IOException if reading fails.
+     */
+    private byte[][] chunks(long from, long until) throws IOException {
+        byte[][] ms = new byte[(int) (until - from)][];
+        IOException[] failed = new IOException[1];
+        IntStream.range(0, ms.length).parallel().forEach(i -> {
+            try {
+                ms[i] = chunk(from + i);
+            } catch (IOException e) {
+                failed[0] = e;
+            }
+        });
+        if (failed[0] != null) throw failed[0];
+        for (byte[] m : ms) {
+            if (m == null) return null;
+        }
+        return ms;
+    }
+
+    /**
+     * Reads and decrypts a single chunk. Reads use absolute positions, so any number may run at once.
+     * @param i index of the chunk
+     * @return plaintext of the chunk, or null if its tag did not match
+     * @throws IOException if reading fails.
+     */
+    private byte[] chunk(long i) throws IOException {
+        boolean last = i == chunks - 1;
+        int len = last ? (int) (length - i * chunkSize) : chunkSize;
+        ByteBuffer buf = ByteBuffer.allocate(len + 64);
+        if (!readFully(channel, buf, HEADER + i * (chunkSize + 64L))) return null;
+        byte[] m = Arrays.copyOf(buf.array(), len);
+        return keys.open(i, last, m, Arrays.copyOfRange(buf.array(), len, len + 64)) ? m : null;
+    }
+
+    /**
+     * Returns the number of chunks in a batch, at most BATCH and at most BATCH_BYTES of plaintext.
+     * @param chunkSize number of plaintext bytes per chunk
+     * @return number of chunks per batch, at least 1
+     */
+    private static int batchChunks(int chunkSize) {
+        return Math.max(1, Math.min(BATCH, BATCH_BYTES / chunkSize));
+    }
+
+    /**
+     * Fills a buffer from a file starting at an absolute position, without moving the position of the channel.
+     * @param channel file to read
+     * @param buf buffer to fill
+     * @param pos position in the file of the first byte
+     * @return true if the buffer was filled, false if the file ended first
+     * @throws IOException if reading fails.
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) == -1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The keyed KMACXOF256 states of a container, copied for each chunk.
+     */
+    private static final class Keys {
+
+        /**
+         * Keyed with ke and "CKE", squeezes the keystreams.
+         */
+        private final KMACXOF256 ke;
+
+        /**
+         * Keyed with ka and "CKA", computes the tags.
+         */
+        private final KMACXOF256 ka;
+
+        /**
+         * 64 bytes stored in the header to recognize the password.
+         */
+        private final byte[] check;
+
+        /**
+         * Derives the keys from the header and password.
+         * @param header z || chunkSize, the check value after them is not read
+         * @param pw password
+         */
+        Keys(byte[] header, byte[] pw) {
+            byte[] zpw = new byte[64 + pw.length];
+            System.arraycopy(header, 0, zpw, 0, 64);
+            System.arraycopy(pw, 0, zpw, 64, pw.length);
+            byte[] keys = KMACXOF256.compute(zpw, Arrays.copyOfRange(header, 64, 68), 1536,
+                    "C".getBytes(StandardCharsets.UTF_8));
+            ke = new KMACXOF256(Arrays.copyOfRange(keys, 0, 64), "CKE".getBytes(StandardCharsets.UTF_8));
+            ka = new KMACXOF256(Arrays.copyOfRange(keys, 64, 128), "CKA".getBytes(StandardCharsets.UTF_8));
+            check = Arrays.copyOfRange(keys, 128, 192);
+        }
+
+        /**
+         * Encrypts a chunk in place and returns its tag.
+         * @param i index of the chunk
+         * @param last true for the last chunk
+         * @param m plaintext, replaced by the ciphertext
+         * @return 64 byte tag
+         */
+        byte[] seal(long i, boolean last, byte[] m) {
+            byte[] tag = tag(i, last, m);
+            xorKeystream(i, m);
+            return tag;
+        }
+
+        /**
+         * Decrypts a chunk in place and checks its tag.
+         * @param i index of the chunk
+         * @param last true for the last chunk
+         * @param c ciphertext, replaced by the plaintext
+         * @param tag tag stored after the chunk
+         * @return true if the tag matched, false otherwise
+         */
+        boolean open(long i, boolean last, byte[] c, byte[] tag) {
+            xorKeystream(i, c);
+            return MessageDigest.isEqual(tag(i, last, c), tag);
+        }
+
+        /**
+         * Computes KMACXOF256(ka, i || last || m, 512, "CKA").
+         * @param i index of the chunk
+         * @param last true for the last chunk
+         * @param m plaintext
+         * @return 64 byte tag
+         */
+        private byte[] tag(long i, boolean last, byte[] m) {
+            KMACXOF256 t = ka.copy();
+            t.update(ByteBuffer.allocate(9).putLong(i).put((byte) (last ? 1 : 0)).array());
+            t.update(m);
+            return t.squeeze(64);
+        }
+
+        /**
+         * XORs the keystream KMACXOF256(ke, i, 8|buf|, "CKE") into buf.
+         * @param i index of the chunk
+         * @param buf data to XOR into
+         */
+        private void xorKeystream(long i, byte[] buf) {
+            KMACXOF256 k = ke.copy();
+            k.update(ByteBuffer.allocate(8).putLong(i).array());
+            byte[] keystream = k.squeeze(buf.length);
+            for (int j = 0; j < buf.length; j++) {
+                buf[j] ^= keystream[j];
+            }
+        }
+    }
+}
@@ -1,12 +1,8 @@
 package Control;
 
-import Model.E521CurvePoint;
-import Model.KMACXOF256;
 import View.GUI;
 
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
+import java.util.concurrent.ForkJoinPool;
 
 /*
     TCSS 487
@@ -17,14 +13,25 @@ import java.security.SecureRandom;
 
 /**
  * Contains all functions that will run after the user presses a button on the application.
+ * Gathers the input and password from the user, then passes them on to Operations and writes out the result.
  */
 public class Controller {
 
+    /**
+     * Most password derived keys kept by the session.
+     */
+    private static final int KEYS = 16;
+
     /**
      * Used so that the controller can pass the GUI on to the IO system.
      */
     private final GUI view;
 
+    /**
+     * Keys derived from the passwords entered during this session, so that each is only derived once.
+     */
+    private final KeyCache keys = new KeyCache(KEYS);
+
     /**
      * Instantiates a controller.
      * @param view The GUI for the application.
@@ -45,9 +52,7 @@ public class Controller {
             inByte = IO.getFile(view, "Select file to hash.");
             if(inByte == null) return;
         }
-        //Values for the hash function taken from the assignment specifications.
-        String s = "D";
-        byte[] outByte = KMACXOF256.compute(new byte[0], inByte, 512, s.getBytes(StandardCharsets.UTF_8));
+        byte[] outByte = Operations.computeHash(inByte);
         IO.writeHex(outByte, view, "Save resulting hash to a file.");
     }
 
@@ -69,29 +74,8 @@ public class Controller {
             IO.showMessage(view, "No password entered. Canceling operation.");
             return;
         }
-        SecureRandom r = new SecureRandom();
-        byte[] z = new byte[64];
-        byte[] ke = new byte[64];
-        byte[] ka = new byte[64];
-        byte[] zpw = new byte[64 + pw.length];
-        byte[] out = new byte[128 + inByte.length];
-        //Encryption algorithm
-        r.nextBytes(z);
-        System.arraycopy(z, 0, zpw, 0, z.length);
-        System.arraycopy(z, 0, out, 0, z.length);
-        System.arraycopy(pw, 0, zpw, z.length, pw.length);
-        byte[] keka = KMACXOF256.compute(zpw, new byte[0], 1024, "S".getBytes(StandardCharsets.UTF_8));
-        System.arraycopy(keka, 0, ke, 0, 64);
-        System.arraycopy(keka, 64, ka, 0, 64);
-        System.arraycopy(KMACXOF256.compute(ke, new byte[0], inByte.length * 8, "SKE".getBytes(StandardCharsets.UTF_8)),
-                0, out, 64, inByte.length);
-        for (int i = 0; i < inByte.length; i++) {
-            out[i + 64] = (byte) (out[i + 64] ^ inByte[i]);
-        }
-        System.arraycopy(KMACXOF256.compute(ka, inByte, 512, "SKA".getBytes(StandardCharsets.UTF_8)), 0,
-                out, inByte.length + 64, 64);
         //Write out result
-        IO.writeBytes(out, view, "Save encrypted file.");
+        IO.writeBytes(Operations.symmetricEncrypt(inByte, pw), view, "Save encrypted file.");
     }
 
     /**
@@ -102,8 +86,6 @@ public class Controller {
      * @param inByte contains a byte[] of user text input from the GUI or null if using file input.
      */
     public void symmetricDecrypt(byte[] inByte) {
-        //Will be used during authentication
-        boolean authTag = true;
         //If null then use IO system to read in a file of the user's choice.
         if(inByte == null) {
             inByte = IO.getFile(view, "Select file to decrypt.");
@@ -115,30 +97,9 @@ public class Controller {
             IO.showMessage(view, "No password entered. Canceling operation.");
             return;
         }
-        byte[] ke = new byte[64];
-        byte[] ka = new byte[64];
-        byte[] zpw = new byte[64 + pw.length];
-        byte[] data = new byte[inByte.length - 128];
-        //Decryption algorithm.
-        System.arraycopy(inByte, 64, data, 0, data.length);
-        System.arraycopy(inByte, 0, zpw, 0, 64);
-        System.arraycopy(pw, 0, zpw, 64, pw.length);
-        byte[] keka = KMACXOF256.compute(zpw, new byte[0], 1024, "S".getBytes(StandardCharsets.UTF_8));
-        System.arraycopy(keka, 0, ke, 0, 64);
-        System.arraycopy(keka, 64, ka, 0, 64);
-        byte[] out = KMACXOF256.compute(ke, new byte[0], data.length * 8, "SKE".getBytes(StandardCharsets.UTF_8));
-        for (int i = 0; i < out.length; i++) {
-            out[i] = (byte) (out[i] ^ data[i]);
-        }
-        ka = KMACXOF256.compute(ka, out, 512, "SKA".getBytes(StandardCharsets.UTF_8));
-        for (int i = 0; i < ka.length; i++) {
-            if(ka[i] != inByte[inByte.length - 64 + i]) {
-                authTag = false;
-                break;
-            }
-        }
+        byte[] out = Operations.symmetricDecrypt(inByte, pw);
         //If tags matched, then write out result, otherwise print an error message and do not write.
-        if(authTag) {
+        if(out != null) {
             IO.writeBytes(out, view, "Save decrypted file.");
         } else {
             IO.showMessage(view, "Failed to validate. No output will be written.");
@@ -160,9 +121,7 @@ public class Controller {
             IO.showMessage(view, "No password entered. Canceling operation.");
             return;
         }
-        //Values for the function taken from the assignment specifications.
-        byte[] outByte = KMACXOF256.compute(pw, inByte,512, "T".getBytes(StandardCharsets.UTF_8));
-        IO.writeBytes(outByte, view, "Save authentication tag.");
+        IO.writeBytes(Operations.authentication(inByte, pw), view, "Save authentication tag.");
     }
 
     /**
@@ -177,18 +136,7 @@ public class Controller {
             IO.showMessage(view, "No password entered. Canceling operation.");
             return;
         }
-        //Size 65 byte[] used to ensure that the 64 bit result is positive when converted to BigInteger.
-        byte[] temp = new byte[65];
-        System.arraycopy(KMACXOF256.compute(pw, new byte[0],
-                512, "K".getBytes(StandardCharsets.UTF_8)), 0, temp, 1, 64);
-        BigInteger s = new BigInteger(temp);
-        s = s.multiply(BigInteger.valueOf(4));
-        E521CurvePoint v = E521CurvePoint.g.scalarMultiply(s);
-        byte[] out = new byte[67];
-        byte[] x = v.getX().toByteArray();
-        System.arraycopy(x, 0, out, 66 - x.length, x.length);
-        out[66] = (byte) (v.getY().testBit(0) ? 1 : 0);
-        IO.writeBytes(out, view, "Save public key.");
+        IO.writeBytes(keys.publicKey(pw), view, "Save public key.");
     }
 
     /**
@@ -206,34 +154,7 @@ public class Controller {
         //Get public key file of user's choosing.
         byte[] pubByte = IO.getFile(view, "Select public key to use during encryption.");
         if(pubByte == null) return;
-        byte[] x = new byte[66];
-        System.arraycopy(pubByte, 0, x, 0, 66);
-        E521CurvePoint v = new E521CurvePoint(new BigInteger(x), pubByte[66] == (byte) 1);
-        SecureRandom r = new SecureRandom();
-        byte[] k = new byte[65];
-        r.nextBytes(k);
-        k[0] = 0;
-        BigInteger k4 = new BigInteger(k);
-        k4 = k4.multiply(BigInteger.valueOf(4));
-        E521CurvePoint w = v.scalarMultiply(k4);
-        E521CurvePoint z = E521CurvePoint.g.scalarMultiply(k4);
-        byte[] ke = new byte[64];
-        byte[] ka = new byte[64];
-        byte[] keka = KMACXOF256.compute(w.getX().toByteArray(), new byte[0], 1024, "P".getBytes(StandardCharsets.UTF_8));
-        System.arraycopy(keka, 0, ke, 0, 64);
-        System.arraycopy(keka, 64, ka, 0, 64);
-        byte[] out = new byte[67 + inByte.length + 64];
-        System.arraycopy(KMACXOF256.compute(ke, new byte[0], inByte.length * 8, "PKE".getBytes(StandardCharsets.UTF_8)),
-                0, out, 67, inByte.length);
-        for (int i = 0; i < inByte.length; i++) {
-            out[i + 67] = (byte) (out[i + 67] ^ inByte[i]);
-        }
-        System.arraycopy(KMACXOF256.compute(ka, inByte, 512, "PKA".getBytes(StandardCharsets.UTF_8)), 0,
-                out, out.length - 64, 64);
-        byte[] temp = z.getX().toByteArray();
-        System.arraycopy(temp, 0, out, 66 - temp.length, temp.length);
-        out[66] = (byte) (z.getY().testBit(0) ? 1 : 0);
-        IO.writeBytes(out, view, "Save encrypted file.");
+        IO.writeBytes(Operations.asEncrypt(inByte, pubByte), view, "Save encrypted file.");
     }
 
     /**
@@ -244,41 +165,15 @@ public class Controller {
      * @param inByte contains a byte[] of user text input from the GUI or null if using file input.
      */
     public void asDecrypt(byte[] inByte) {
-        boolean authTag = true;
         //If null then use IO system to read in file of the user's choosing.
         if(inByte == null) {
             inByte = IO.getFile(view, "Select file to encrypt.");
             if(inByte == null) return;
         }
         byte[] pw = IO.getPassword(view, "Enter password for decryption.");
-        byte[] temp = new byte[65];
-        System.arraycopy(KMACXOF256.compute(pw, new byte[0],
-                512, "K".getBytes(StandardCharsets.UTF_8)), 0, temp, 1, 64);
-        BigInteger s = new BigInteger(temp);
-        s = s.multiply(BigInteger.valueOf(4));
-        byte[] z = new byte[66];
-        System.arraycopy(inByte, 0, z, 0, 66);
-        E521CurvePoint w = new E521CurvePoint(new BigInteger(z), inByte[66] == 1);
-        w = w.scalarMultiply(s);
-        byte[] ke = new byte[64];
-        byte[] ka = new byte[64];
-        byte[] keka = KMACXOF256.compute(w.getX().toByteArray(), new byte[0], 1024, "P".getBytes(StandardCharsets.UTF_8));
-        System.arraycopy(keka, 0, ke, 0, 64);
-        System.arraycopy(keka, 64, ka, 0, 64);
-        byte[] m = new byte[inByte.length - 67 - 64];
-        m = KMACXOF256.compute(ke, new byte[0], m.length * 8, "PKE".getBytes(StandardCharsets.UTF_8));
-        for (int i = 0; i < m.length; i++) {
-            m[i] = (byte) (m[i] ^ inByte[i + 67]);
-        }
-        ka = KMACXOF256.compute(ka, m, 512, "PKA".getBytes(StandardCharsets.UTF_8));
-        for (int i = 0; i < ka.length; i++) {
-            if(ka[i] != inByte[inByte.length - 64 + i]) {
-                authTag = false;
-                break;
-            }
-        }
+        byte[] m = Operations.asDecrypt(inByte, keys.privateScalar(pw));
         //If the above authentication worked, then save output to file. Otherwise, show an error message.
-        if(authTag) {
+        if(m != null) {
             IO.writeBytes(m, view, "Save decrypted file.");
         } else {
             IO.showMessage(view, "Failed to validate. No output will be written.");
@@ -293,26 +188,8 @@ public class Controller {
         byte[] inByte = IO.getFile(view, "Select file to sign.");
         if(inByte == null) return;
         byte[] pw = IO.getPassword(view, "Enter the password to be used during signature creation.");
-        byte[] temp = new byte[65];
-        temp[0] = 0;
-        System.arraycopy(KMACXOF256.compute(pw, new byte[0],
-                512, "K".getBytes(StandardCharsets.UTF_8)), 0, temp, 1, 64);
-        BigInteger s = new BigInteger(temp);
-        s = s.multiply(BigInteger.valueOf(4));
-        System.arraycopy(KMACXOF256.compute(s.toByteArray(), inByte,
-                512, "N".getBytes(StandardCharsets.UTF_8)), 0, temp, 1, 64);
-        BigInteger k = new BigInteger(temp);
-        k = k.multiply(BigInteger.valueOf(4));
-        E521CurvePoint u = E521CurvePoint.g.scalarMultiply(k);
-        byte [] test1 = KMACXOF256.compute(u.getX().toByteArray(), inByte,
-                512, "T".getBytes(StandardCharsets.UTF_8));
-        System.arraycopy(test1, 0, temp, 1, 64);
-        BigInteger h = new BigInteger(temp);
-        BigInteger z = k.subtract(h.multiply(s)).mod(E521CurvePoint.r);
-        byte[] out = new byte[67*2];
-        System.arraycopy(h.toByteArray(), 0, out, 67 - h.toByteArray().length, h.toByteArray().length);
-        System.arraycopy(z.toByteArray(), 0, out, out.length - z.toByteArray().length, z.toByteArray().length);
-        IO.writeBytes(out, view, "Save signature to file.");
+        Signer signer = new Signer(keys.privateScalar(pw), ForkJoinPool.commonPool());
+        IO.writeBytes(signer.sign(inByte), view, "Save signature to file.");
     }
 
     /**
@@ -327,21 +204,7 @@ public class Controller {
         if (m == null) return;
         byte[] pubByte = IO.getFile(view, "Select public key.");
         if(pubByte == null) return;
-        byte[] x = new byte[66];
-        System.arraycopy(pubByte, 0, x, 0, 66);
-        E521CurvePoint v = new E521CurvePoint(new BigInteger(x), pubByte[66] == (byte) 1);
-        byte[] hByte = new byte[67];
-        System.arraycopy(sig, 0, hByte, 0, 67);
-        byte[] zByte = new byte[67];
-        System.arraycopy(sig, 67, zByte, 0, 67);
-        BigInteger h = new BigInteger(hByte);
-        BigInteger z = new BigInteger(zByte);
-        E521CurvePoint u = E521CurvePoint.g.scalarMultiply(z).add(v.scalarMultiply(h));
-        byte[] temp = KMACXOF256.compute(u.getX().toByteArray(), m, 512, "T".getBytes(StandardCharsets.UTF_8));
-        byte[] hPrime = new byte[65];
-        hPrime[0] = 0;
-        System.arraycopy(temp, 0, hPrime, 1, 64);
-        if ((new BigInteger(hPrime)).equals(h)) {
+        if (Operations.verifySig(sig, m, pubByte)) {
             IO.showMessage(view, "Signature validated.");
         } else {
             IO.showMessage(view, "Signature not validated.");
@@ -0,0 +1,208 @@
+package Control;
+
+import Model.E521CurvePoint;
+import Model.KMACXOF256;
+import Model.LRUCache;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Keeps the private scalars s = 4 * KMACXOF256(pw, "", 512, "K") and public keys V = s * G derived from passwords,
+ * so that a long running session only derives each key once. Passwords are never stored: entries are found by
+ * KMACXOF256(salt, pw, 256, "KC") with a random salt chosen for each cache.
+ * The cache holds at most a fixed number of keys and drops the least recently used one when it is full. The scalar
+ * of a dropped key is overwritten with zeros, as are all scalars when the cache is cleared. Note that the
+ * BigInteger returned by privateScalar is a copy that cannot be cleared.
+ * All methods may be called from any number of threads.
+ */
+public class KeyCache {
+
+    /**
+     * Customization string of the KMACXOF256 that identifies a password.
+     */
+    private static final byte[] idS = "KC".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Key of the KMACXOF256 that identifies a password, so identifiers cannot be compared across caches.
+     */
+    private final byte[] salt = new byte[32];
+
+    /**
+     * Keys by the identifier of their password, in least to most recently used order.
+     */
+    private final LRUCache<ByteBuffer, Key> keys;
+
+    /**
+     * Number of lookups that found what they were after.
+     */
+    private long hits = 0;
+
+    /**
+     * Number of lookups that had to derive a key.
+     */
+    private long misses = 0;
+
+    /**
+     * Creates an empty cache.
+     * @param capacity most keys held at once
+     */
+    public KeyCache(int capacity) {
+        keys = new LRUCache<>(capacity, (id, key) -> key.clear());
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * Returns the private scalar derived from a password, the same as Operations.privateScalar.
+     * @param pw password
+     * @return private scalar s
+     */
+    public BigInteger privateScalar(byte[] pw) {
+        ByteBuffer id = id(pw);
+        synchronized (keys) {
+            Key key = keys.get(id);
+            if (key != null) {
+                hits++;
+                return new BigInteger(key.s);
+            }
+            misses++;
+        }
+        BigInteger s = Operations.privateScalar(pw);
+        store(id, s.toByteArray(), null);
+        return s;
+    }
+
+    /**
+     * Returns the public key of a password, the same as Operations.keyPair.
+     * @param pw password
+     * @return 67 byte public key
+     */
+    public byte[] publicKey(byte[] pw) {
+        ByteBuffer id = id(pw);
+        BigInteger s = null;
+        synchronized (keys) {
+            Key key = keys.get(id);
+            if (key != null && key.publicKey != null) {
+                hits++;
+                return key.publicKey.clone();
+            }
+            misses++;
+            if (key != null) {
+                s = new BigInteger(key.s);
+            }
+        }
+        if (s == null) {
+            s = Operations.privateScalar(pw);
+        }
+        byte[] publicKey = Operations.encodePoint(E521CurvePoint.g.scalarMultiplySecret(s));
+        store(id, s.toByteArray(), publicKey);
+        return publicKey.clone();
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     * @return number of hits
+     */
+    public long hits() {
+        synchronized (keys) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that had to derive a private scalar or public key.
+     * @return number of misses
+     */
+    public long misses() {
+        synchronized (keys) {
+            return misses;
+        }
+    }
+
+    /**
+     * Returns the number of keys currently held.
+     * @return number of cached keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Drops all cached keys, overwriting their scalars with zeros. The hit and miss counts are kept.
+     */
+    public void clear() {
+        keys.clear();
+    }
+
+    /**
+     * Adds a derived key, or its public key to an entry that only has the scalar. If another thread stored the same
+     * key first, the copy of the scalar passed in is cleared instead.
+     * @param id identifier of the password
+     * @param s private scalar as a byte[], owned by the cache afterwards
+     * @param publicKey public key, or null if it has not been computed
+     */
+    private void store(ByteBuffer id, byte[] s, byte[] publicKey) {
+        synchronized (keys) {
+            Key key = keys.putIfAbsent(id, new Key(s, publicKey));
+            if (key == null) {
+                return;
+            }
+            if (key.publicKey == null) {
+                key.publicKey = publicKey;
+            }
+        }
+        Arrays.fill(s, (byte) 0);
+    }
+
+    /**
+     * Returns the identifier of a password, KMACXOF256(salt, pw, 256, "KC").
+     * @param pw password
+     * @return identifier
+     */
+    private ByteBuffer id(byte[] pw) {
+        return ByteBuffer.wrap(KMACXOF256.compute(salt, pw, 256, idS));
+    }
+
+    /**
+     * A private scalar and, once it has been asked for, its public key.
+     */
+    private static final class Key {
+
+        /**
+         * Private scalar s as written by BigInteger.toByteArray.
+         */
+        private final byte[] s;
+
+        /**
+         * 67 byte public key, or null if it has not been computed.
+         */
+        private byte[] publicKey;
+
+        /**
+         * Creates an entry.
+         * @param s private scalar as a byte[]
+         * @param publicKey public key, or null
+         */
+        Key(byte[] s, byte[] publicKey) {
+            this.s = s;
+            this.publicKey = publicKey;
+        }
+
+        /**
+         * Overwrites the scalar with zeros.
+         */
+        void clear() {
+            Arrays.fill(s, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package Control;
+
+import Model.KMACXOF256;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Encrypts or decrypts data in pieces with a KMACXOF256 keystream while computing the KMACXOF256 tag of the
+ * plaintext at the same time. Given the 128 byte ke || ka derived from a password or shared point, this produces
+ * exactly c = KMACXOF256(ke, "", 8|m|, encS) xor m and t = KMACXOF256(ka, m, 512, authS), however the data is split
+ * up, since the XOF output does not depend on the requested length. Only one piece of keystream is held at a time.
+ */
+final class KeystreamCipher {
+
+    /**
+     * Squeezes the keystream.
+     */
+    private final KMACXOF256 ke;
+
+    /**
+     * Absorbs the plaintext for the tag.
+     */
+    private final KMACXOF256 ka;
+
+    /**
+     * Keystream for the current piece, grown as needed.
+     */
+    private byte[] keystream = new byte[0];
+
+    /**
+     * Sets up the keystream and tag from the two 64 byte halves of keka.
+     * @param keka 128 bytes, ke followed by ka
+     * @param encS customization string of the keystream, such as "SKE"
+     * @param authS customization string of the tag, such as "SKA"
+     */
+    KeystreamCipher(byte[] keka, String encS, String authS) {
+        byte[] key = new byte[64];
+        System.arraycopy(keka, 0, key, 0, 64);
+        ke = new KMACXOF256(key, encS.getBytes(StandardCharsets.UTF_8));
+        System.arraycopy(keka, 64, key, 0, 64);
+        ka = new KMACXOF256(key, authS.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encrypts len bytes of plaintext in place.
+     * @param buf plaintext, replaced by the ciphertext
+     * @param off offset of the first byte
+     * @param len number of bytes
+     */
+    void encrypt(byte[] buf, int off, int len) {
+        ka.update(buf, off, len);
+        xorKeystream(buf, off, len);
+    }
+
+    /**
+     * Decrypts len bytes of ciphertext in place.
+     * @param buf ciphertext, replaced by the plaintext
+     * @param off offset of the first byte
+     * @param len number of bytes
+     */
+    void decrypt(byte[] buf, int off, int len) {
+        xorKeystream(buf, off, len);
+        ka.update(buf, off, len);
+    }
+
+    /**
+     * Returns the tag of all plaintext seen. No more data may be encrypted or decrypted afterwards.
+     * @return 64 byte tag
+     */
+    byte[] tag() {
+        return ka.squeeze(64);
+    }
+
+    /**
+     * XORs the next len bytes of keystream into buf.
+     * @param buf data to XOR into
+     * @param off offset of the first byte
+     * @param len number of bytes
+     */
+    private void xorKeystream(byte[] buf, int off, int len) {
+        if (keystream.length < len) {
+            keystream = new byte[len];
+        }
+        ke.squeeze(keystream, 0, len);
+        for (int i = 0; i < len; i++) {
+            buf[off + i] ^= keystream[i];
+        }
+    }
+}
@@ -0,0 +1,912 @@
+package Control;
+
+import Model.E521CurvePoint;
+import Model.KMACXOF256;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Contains the cryptographic operations of the application independent of how the input is chosen and where the
+ * output is written. The Controller gathers input from the user and passes it to these functions.
+ */
+public class Operations {
+
+    /**
+     * Size of the buffer used when reading from an InputStream.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Size of the windows a file is memory mapped in, since a MappedByteBuffer cannot hold more than 2 GB.
+     */
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /**
+     * Most public keys kept decoded at once.
+     */
+    private static final int PUBLIC_KEYS = 256;
+
+    /**
+     * Public keys that have been encrypted to or verified against, shared by the whole application.
+     */
+    private static final PublicKeyCache publicKeys = new PublicKeyCache(PUBLIC_KEYS);
+
+    /**
+     * Most recipients of a single envelope, which keeps the size of its header within an int.
+     */
+    static final int MAX_RECIPIENTS = 1 << 16;
+
+    /**
+     * Computes a hash from a byte[] using KMACXOF256.
+     * @param m data to hash
+     * @return 64 byte hash
+     */
+    public static byte[] computeHash(byte[] m) {
+        //Values for the hash function taken from the assignment specifications.
+        return KMACXOF256.compute(new byte[0], m, 512, "D".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes a hash of the data read from an InputStream using KMACXOF256. The data is hashed as it is read, so
+     * it does not need to fit in memory.
+     * @param in data to hash, read until the end of the stream
+     * @return 64 byte hash
+     * @throws IOException if reading the data fails.
+     */
+    public static byte[] computeHash(InputStream in) throws IOException {
+        KMACXOF256 kmac = new KMACXOF256(new byte[0], "D".getBytes(StandardCharsets.UTF_8));
+        absorb(kmac, in);
+        return kmac.squeeze(64);
+    }
+
+    /**
+     * Computes a hash of a file using KMACXOF256. The file is memory mapped and absorbed straight from the mapping,
+     * so its contents are never copied onto the heap.
+     * @param file file to hash
+     * @return 64 byte hash
+     * @throws IOException if reading the file fails.
+     */
+    public static byte[] computeHash(Path file) throws IOException {
+        KMACXOF256 kmac = new KMACXOF256(new byte[0], "D".getBytes(StandardCharsets.UTF_8));
+        absorb(kmac, file, MAP_WINDOW);
+        return kmac.squeeze(64);
+    }
+
+    /**
+     * Symmetrically encrypt a byte[] using KMACXOF256.
+     * The first 64 bytes of the result are the random bits z, the last 64 bytes are the tag t, and the remaining
+     * middle bytes are the encrypted byte[].
+     * @param m data to encrypt
+     * @param pw password
+     * @return encrypted byte[]
+     */
+    public static byte[] symmetricEncrypt(byte[] m, byte[] pw) {
+        byte[] z = new byte[64];
+        new SecureRandom().nextBytes(z);
+        byte[] out = new byte[128 + m.length];
+        System.arraycopy(z, 0, out, 0, 64);
+        System.arraycopy(m, 0, out, 64, m.length);
+        KeystreamCipher cipher = symmetricCipher(z, pw);
+        cipher.encrypt(out, 64, m.length);
+        System.arraycopy(cipher.tag(), 0, out, out.length - 64, 64);
+        return out;
+    }
+
+    /**
+     * Symmetrically encrypt the data read from an InputStream and write the result to an OutputStream, in the same
+     * format as symmetricEncrypt(byte[], byte[]). The data is encrypted in pieces as it is read, so it does not need
+     * to fit in memory.
+     * @param in data to encrypt, read until the end of the stream
+     * @param out where the encrypted data is written
+     * @param pw password
+     * @throws IOException if reading or writing fails.
+     */
+    public static void symmetricEncrypt(InputStream in, OutputStream out, byte[] pw) throws IOException {
+        byte[] z = new byte[64];
+        new SecureRandom().nextBytes(z);
+        out.write(z);
+        encrypt(symmetricCipher(z, pw), in, out);
+    }
+
+    /**
+     * Symmetrically decrypt a byte[] using KMACXOF256.
+     * The byte[] to be decrypted is assumed to have the first 64 bytes be the random bits z, the last 64 bytes be
+     * the tag t, and the middle bytes be the encrypted bytes.
+     * @param c data to decrypt
+     * @param pw password
+     * @return decrypted byte[], or null if c is too short or the tag did not match
+     */
+    public static byte[] symmetricDecrypt(byte[] c, byte[] pw) {
+        if (c.length < 128) return null;
+        byte[] out = Arrays.copyOfRange(c, 64, c.length - 64);
+        KeystreamCipher cipher = symmetricCipher(Arrays.copyOf(c, 64), pw);
+        cipher.decrypt(out, 0, out.length);
+        return MessageDigest.isEqual(cipher.tag(), Arrays.copyOfRange(c, c.length - 64, c.length)) ? out : null;
+    }
+
+    /**
+     * Symmetrically decrypt the data read from an InputStream and write the result to an OutputStream. The data is
+     * decrypted in pieces as it is read, so the output is written before the tag at the end of the input has been
+     * checked. If this returns false, everything written to out must be discarded.
+     * @param in data to decrypt as written by symmetricEncrypt, read until the end of the stream
+     * @param out where the decrypted data is written
+     * @param pw password
+     * @return true if the tag matched, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public static boolean symmetricDecrypt(InputStream in, OutputStream out, byte[] pw) throws IOException {
+        byte[] z = in.readNBytes(64);
+        if (z.length < 64) return false;
+        return decrypt(symmetricCipher(z, pw), in, out);
+    }
+
+    /**
+     * Symmetrically decrypt the data read from an InputStream into a file. The plaintext is written to a temporary
+     * file in the same directory and only renamed to out once the tag has matched, so out is never left holding
+     * unauthenticated data and memory use does not grow with the size of the data.
+     * @param in data to decrypt as written by symmetricEncrypt, read until the end of the stream
+     * @param out file to write the decrypted data to, replaced if it exists
+     * @param pw password
+     * @return true if the tag matched and out was written, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public static boolean symmetricDecrypt(InputStream in, Path out, byte[] pw) throws IOException {
+        return decryptToFile(out, tmp -> symmetricDecrypt(in, tmp, pw));
+    }
+
+    /**
+     * Creates an authentication tag based on a byte[] and password using KMACXOF256.
+     * @param m data to create the tag from
+     * @param pw password
+     * @return 64 byte tag
+     */
+    public static byte[] authentication(byte[] m, byte[] pw) {
+        //Values for the function taken from the assignment specifications.
+        return KMACXOF256.compute(pw, m, 512, "T".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates authentication tags for many byte[]s with the same password. Gives the same tags as calling
+     * authentication for each, with the shared setup done once and the work spread over all cores.
+     * @param ms data to create the tags from
+     * @param pw password
+     * @return 64 byte tag for each byte[], in the same order
+     */
+    public static byte[][] authentication(byte[][] ms, byte[] pw) {
+        byte[][] keys = new byte[ms.length][];
+        Arrays.fill(keys, pw);
+        return KMACXOF256.computeBatch(keys, ms, 512, "T".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates an authentication tag for the data read from an InputStream using KMACXOF256. The data is read in
+     * pieces, so it does not need to fit in memory.
+     * @param in data to create the tag from, read until the end of the stream
+     * @param pw password
+     * @return 64 byte tag
+     * @throws IOException if reading the data fails.
+     */
+    public static byte[] authentication(InputStream in, byte[] pw) throws IOException {
+        KMACXOF256 kmac = new KMACXOF256(pw, "T".getBytes(StandardCharsets.UTF_8));
+        absorb(kmac, in);
+        return kmac.squeeze(64);
+    }
+
+    /**
+     * Creates an authentication tag for a file using KMACXOF256. The file is memory mapped and absorbed straight
+     * from the mapping, so its contents are never copied onto the heap.
+     * @param file file to create the tag from
+     * @param pw password
+     * @return 64 byte tag
+     * @throws IOException if reading the file fails.
+     */
+    public static byte[] authentication(Path file, byte[] pw) throws IOException {
+        KMACXOF256 kmac = new KMACXOF256(pw, "T".getBytes(StandardCharsets.UTF_8));
+        absorb(kmac, file, MAP_WINDOW);
+        return kmac.squeeze(64);
+    }
+
+    /**
+     * Generate a public key from a password. Uses the E-521 curve and KMACXOF256.
+     * The first 66 bytes of the public key are the x coordinate and the 67th byte specifies if the least
+     * significant bit of the y coordinate is 0 or 1.
+     * @param pw password
+     * @return 67 byte public key
+     */
+    public static byte[] keyPair(byte[] pw) {
+        BigInteger s = privateScalar(pw);
+        E521CurvePoint v = E521CurvePoint.g.scalarMultiplySecret(s);
+        return encodePoint(v);
+    }
+
+    /**
+     * Encrypts a byte[] using E-521 curve and KMACXOF256.
+     * The result contains the information for the random curve point in the first 67 bytes, the tag in the last 64
+     * bytes, and the encrypted byte[] in the middle bytes.
+     * The decoded public key is kept with its table of odd multiples, so encrypting to the same key again skips
+     * decoding it and multiplies it with that table.
+     * @param m data to encrypt
+     * @param pubByte 67 byte public key as created by keyPair
+     * @return encrypted byte[]
+     */
+    public static byte[] asEncrypt(byte[] m, byte[] pubByte) {
+        E521CurvePoint v = publicKeys.get(pubByte);
+        BigInteger k4 = randomScalar();
+        E521CurvePoint w = v.scalarMultiplySecret(k4);
+        E521CurvePoint z = E521CurvePoint.g.scalarMultiplySecret(k4);
+        byte[] out = new byte[67 + m.length + 64];
+        System.arraycopy(m, 0, out, 67, m.length);
+        KeystreamCipher cipher = asymmetricCipher(w);
+        cipher.encrypt(out, 67, m.length);
+        System.arraycopy(cipher.tag(), 0, out, out.length - 64, 64);
+        System.arraycopy(encodePoint(z), 0, out, 0, 67);
+        return out;
+    }
+
+    /**
+     * Encrypts the data read from an InputStream using the E-521 curve and KMACXOF256 and writes the result to an
+     * OutputStream, in the same format as asEncrypt(byte[], byte[]). The data is encrypted in pieces as it is read,
+     * so it does not need to fit in memory.
+     * @param in data to encrypt, read until the end of the stream
+     * @param out where the encrypted data is written
+     * @param pubByte 67 byte public key as created by keyPair
+     * @throws IOException if reading or writing fails.
+     */
+    public static void asEncrypt(InputStream in, OutputStream out, byte[] pubByte) throws IOException {
+        E521CurvePoint v = publicKeys.get(pubByte);
+        BigInteger k4 = randomScalar();
+        E521CurvePoint w = v.scalarMultiplySecret(k4);
+        out.write(encodePoint(E521CurvePoint.g.scalarMultiplySecret(k4)));
+        encrypt(asymmetricCipher(w), in, out);
+    }
+
+    /**
+     * Decrypts a byte[] using the E-521 curve and KMACXOF256.
+     * Encrypted byte[] assumed to be of the form where the first 67 bytes describe a random curve point, the last
+     * 64 bytes are the tag, and the middle bytes are the bytes to decrypt.
+     * @param c data to decrypt
+     * @param pw password the public key was generated from
+     * @return decrypted byte[], or null if c is too short, does not start with a curve point, or the tag did not
+     * match
+     */
+    public static byte[] asDecrypt(byte[] c, byte[] pw) {
+        return asDecrypt(c, privateScalar(pw));
+    }
+
+    /**
+     * Decrypts a byte[] using the E-521 curve and KMACXOF256 with a private scalar that has already been derived
+     * from the password, such as one held by a KeyCache.
+     * @param c data to decrypt
+     * @param s private scalar of the password the public key was generated from
+     * @return decrypted byte[], or null if c is too short, does not start with a curve point, or the tag did not
+     * match
+     */
+    static byte[] asDecrypt(byte[] c, BigInteger s) {
+        E521CurvePoint z = c.length < 67 + 64 ? null : decodePointOrNull(c);
+        if (z == null) return null;
+        E521CurvePoint w = z.scalarMultiplySecret(s);
+        byte[] m = Arrays.copyOfRange(c, 67, c.length - 64);
+        KeystreamCipher cipher = asymmetricCipher(w);
+        cipher.decrypt(m, 0, m.length);
+        return MessageDigest.isEqual(cipher.tag(), Arrays.copyOfRange(c, c.length - 64, c.length)) ? m : null;
+    }
+
+    /**
+     * Decrypts the data read from an InputStream using the E-521 curve and KMACXOF256 and writes the result to an
+     * OutputStream. The data is decrypted in pieces as it is read, so the output is written before the tag at the
+     * end of the input has been checked. If this returns false, everything written to out must be discarded.
+     * @param in data to decrypt as written by asEncrypt, read until the end of the stream
+     * @param out where the decrypted data is written
+     * @param pw password the public key was generated from
+     * @return true if the tag matched, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public static boolean asDecrypt(InputStream in, OutputStream out, byte[] pw) throws IOException {
+        byte[] head = in.readNBytes(67);
+        E521CurvePoint z = head.length < 67 ? null : decodePointOrNull(head);
+        if (z == null) return false;
+        E521CurvePoint w = z.scalarMultiplySecret(privateScalar(pw));
+        return decrypt(asymmetricCipher(w), in, out);
+    }
+
+    /**
+     * Decrypts the data read from an InputStream using the E-521 curve and KMACXOF256 into a file. The plaintext is
+     * written to a temporary file in the same directory and only renamed to out once the tag has matched, so out
+     * is never left holding unauthenticated data and memory use does not grow with the size of the data.
+     * @param in data to decrypt as written by asEncrypt, read until the end of the stream
+     * @param out file to write the decrypted data to, replaced if it exists
+     * @param pw password the public key was generated from
+     * @return true if the tag matched and out was written, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public static boolean asDecrypt(InputStream in, Path out, byte[] pw) throws IOException {
+        return decryptToFile(out, tmp -> asDecrypt(in, tmp, pw));
+    }
+
+    /**
+     * Encrypts a byte[] once for any number of recipients using the E-521 curve and KMACXOF256.
+     * The data is encrypted with symmetricEncrypt under a random 64 byte content key used as the password, and only
+     * the content key is encrypted for each recipient, the same way asEncrypt encrypts data, with one random k
+     * shared by all of them. The result is Z = k * G in 67 bytes, the number of recipients n in 4 bytes, n slots of
+     * the encrypted content key followed by its 64 byte tag, and then z || c || t of the symmetric encryption.
+     * The slots are filled in parallel, so the cost beyond a single symmetric encryption is one multiplication and
+     * 128 bytes per recipient, whatever the size of the data.
+     * @param m data to encrypt
+     * @param pubKeys 67 byte public key of each recipient as created by keyPair
+     * @return encrypted byte[]
+     * @throws IllegalArgumentException if there are no recipients, more than MAX_RECIPIENTS, or a public key is not
+     * a curve point.
+     */
+    public static byte[] envelopeEncrypt(byte[] m, byte[][] pubKeys) {
+        byte[] key = new byte[64];
+        new SecureRandom().nextBytes(key);
+        byte[] header = wrapKey(key, pubKeys);
+        byte[] z = new byte[64];
+        new SecureRandom().nextBytes(z);
+        byte[] out = new byte[header.length + 128 + m.length];
+        System.arraycopy(header, 0, out, 0, header.length);
+        System.arraycopy(z, 0, out, header.length, 64);
+        System.arraycopy(m, 0, out, header.length + 64, m.length);
+        KeystreamCipher cipher = symmetricCipher(z, key);
+        cipher.encrypt(out, header.length + 64, m.length);
+        System.arraycopy(cipher.tag(), 0, out, out.length - 64, 64);
+        return out;
+    }
+
+    /**
+     * Encrypts the data read from an InputStream once for any number of recipients and writes the result to an
+     * OutputStream, in the same format as envelopeEncrypt(byte[], byte[][]). The data is encrypted in pieces as it
+     * is read, so it does not need to fit in memory.
+     * @param in data to encrypt, read until the end of the stream
+     * @param out where the encrypted data is written
+     * @param pubKeys 67 byte public key of each recipient as created by keyPair
+     * @throws IOException if reading or writing fails.
+     * @throws IllegalArgumentException if there are no recipients, more than MAX_RECIPIENTS, or a public key is not
+     * a curve point.
+     */
+    public static void envelopeEncrypt(InputStream in, OutputStream out, byte[][] pubKeys) throws IOException {
+        byte[] key = new byte[64];
+        new SecureRandom().nextBytes(key);
+        out.write(wrapKey(key, pubKeys));
+        symmetricEncrypt(in, out, key);
+    }
+
+    /**
+     * Decrypts a byte[] written by envelopeEncrypt with the password of one of its recipients.
+     * @param c data to decrypt
+     * @param pw password the public key of a recipient was generated from
+     * @return decrypted byte[], or null if c is not an envelope, pw is not the password of a recipient, or the tag
+     * did not match
+     */
+    public static byte[] envelopeDecrypt(byte[] c, byte[] pw) {
+        return envelopeDecrypt(c, privateScalar(pw));
+    }
+
+    /**
+     * Decrypts a byte[] written by envelopeEncrypt with a private scalar that has already been derived from the
+     * password, such as one held by a KeyCache.
+     * @param c data to decrypt
+     * @param s private scalar of the password the public key of a recipient was generated from
+     * @return decrypted byte[], or null if c is not an envelope, s is not the key of a recipient, or the tag did not
+     * match
+     */
+    static byte[] envelopeDecrypt(byte[] c, BigInteger s) {
+        ByteArrayInputStream in = new ByteArrayInputStream(c);
+        byte[] key;
+        try {
+            key = unwrapKey(in, s);
+        } catch (IOException e) {
+            //Reading a byte[] does no IO.
+            throw new UncheckedIOException(e);
+        }
+        if (key == null) return null;
+        return symmetricDecrypt(Arrays.copyOfRange(c, c.length - in.available(), c.length), key);
+    }
+
+    /**
+     * Decrypts the data read from an InputStream written by envelopeEncrypt and writes the result to an
+     * OutputStream. The data is decrypted in pieces as it is read, so the output is written before the tag at the
+     * end of the input has been checked. If this returns false, everything written to out must be discarded.
+     * @param in data to decrypt as written by envelopeEncrypt, read until the end of the stream
+     * @param out where the decrypted data is written
+     * @param pw password the public key of a recipient was generated from
+     * @return true if the tag matched, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public static boolean envelopeDecrypt(InputStream in, OutputStream out, byte[] pw) throws IOException {
+        byte[] key = unwrapKey(in, privateScalar(pw));
+        if (key == null) return false;
+        return symmetricDecrypt(in, out, key);
+    }
+
+    /**
+     * Decrypts the data read from an InputStream written by envelopeEncrypt into a file. The plaintext is written
+     * to a temporary file in the same directory and only renamed to out once the tag has matched.
+     * @param in data to decrypt as written by envelopeEncrypt, read until the end of the stream
+     * @param out file to write the decrypted data to, replaced if it exists
+     * @param pw password the public key of a recipient was generated from
+     * @return true if the tag matched and out was written, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    public static boolean envelopeDecrypt(InputStream in, Path out, byte[] pw) throws IOException {
+        return decryptToFile(out, tmp -> envelopeDecrypt(in, tmp, pw));
+    }
+
+    /**
+     * Create a signature for a byte[] using a password. Uses the E-521 curve and KMACXOF256.
+     * The first 67 bytes of the signature are h and the last 67 bytes are z. A Signer should be used instead to
+     * create many signatures with the same password.
+     * @param m data to sign
+     * @param pw password
+     * @return 134 byte signature
+     */
+    public static byte[] createSig(byte[] m, byte[] pw) {
+        return new Signer(pw).sign(m);
+    }
+
+    /**
+     * Create a signature for the data read from an InputStream using a password.
+     * @param in data to sign, read until the end of the stream
+     * @param pw password
+     * @return 134 byte signature
+     * @throws IOException if reading the data fails.
+     */
+    public static byte[] createSig(InputStream in, byte[] pw) throws IOException {
+        return createSig(in.readAllBytes(), pw);
+    }
+
+    /**
+     * Verify a signature for a byte[] against the public key of the signer.
+     * @param sig 134 byte signature as created by createSig
+     * @param m data associated with the signature
+     * @param pubByte 67 byte public key as created by keyPair
+     * @return true if the signature is valid, false otherwise
+     */
+    public static boolean verifySig(byte[] sig, byte[] m, byte[] pubByte) {
+        BigInteger h = new BigInteger(Arrays.copyOfRange(sig, 0, 67));
+        E521CurvePoint u = sigPoint(sig, h, pubByte);
+        byte[] temp = KMACXOF256.compute(u.getX().toByteArray(), m, 512, "T".getBytes(StandardCharsets.UTF_8));
+        byte[] hPrime = new byte[65];
+        hPrime[0] = 0;
+        System.arraycopy(temp, 0, hPrime, 1, 64);
+        return (new BigInteger(hPrime)).equals(h);
+    }
+
+    /**
+     * Verify a signature for data read from an InputStream against the public key of the signer. The data is
+     * hashed as it is read, so it does not need to fit in memory.
+     * @param sig 134 byte signature as created by createSig
+     * @param in data associated with the signature, read until the end of the stream
+     * @param pubByte 67 byte public key as created by keyPair
+     * @return true if the signature is valid, false otherwise
+     * @throws IOException if reading the data fails.
+     */
+    public static boolean verifySig(byte[] sig, InputStream in, byte[] pubByte) throws IOException {
+        BigInteger h = new BigInteger(Arrays.copyOfRange(sig, 0, 67));
+        E521CurvePoint u = sigPoint(sig, h, pubByte);
+        KMACXOF256 kmac = new KMACXOF256(u.getX().toByteArray(), "T".getBytes(StandardCharsets.UTF_8));
+        absorb(kmac, in);
+        byte[] hPrime = new byte[65];
+        kmac.squeeze(hPrime, 1, 64);
+        return (new BigInteger(hPrime)).equals(h);
+    }
+
+    /**
+     * Verify a signature for a file against the public key of the signer. The file is memory mapped and absorbed
+     * straight from the mapping, so its contents are never copied onto the heap.
+     * @param sig 134 byte signature as created by createSig
+     * @param file file associated with the signature
+     * @param pubByte 67 byte public key as created by keyPair
+     * @return true if the signature is valid, false otherwise
+     * @throws IOException if reading the file fails.
+     */
+    public static boolean verifySig(byte[] sig, Path file, byte[] pubByte) throws IOException {
+        BigInteger h = new BigInteger(Arrays.copyOfRange(sig, 0, 67));
+        E521CurvePoint u = sigPoint(sig, h, pubByte);
+        KMACXOF256 kmac = new KMACXOF256(u.getX().toByteArray(), "T".getBytes(StandardCharsets.UTF_8));
+        absorb(kmac, file, MAP_WINDOW);
+        byte[] hPrime = new byte[65];
+        kmac.squeeze(hPrime, 1, 64);
+        return (new BigInteger(hPrime)).equals(h);
+    }
+
+    /**
+     * Recomputes U = z * G + h * V from a signature and the public key V of the signer.
+     * The decoded public key is kept the same way as for asEncrypt.
+     * @param sig 134 byte signature as created by createSig
+     * @param h first half of the signature
+     * @param pubByte 67 byte public key as created by keyPair
+     * @return the point U whose x coordinate keys the hash of the signed data
+     */
+    private static E521CurvePoint sigPoint(byte[] sig, BigInteger h, byte[] pubByte) {
+        E521CurvePoint v = publicKeys.get(pubByte);
+        BigInteger z = new BigInteger(Arrays.copyOfRange(sig, 67, 134));
+        return E521CurvePoint.multiScalar(new BigInteger[] {z, h}, new E521CurvePoint[] {E521CurvePoint.g, v});
+    }
+
+    /**
+     * Verifies many signatures at once, each against its own byte[] and public key. This gives the same results
+     * as calling verifySig for each signature, but the distinct public keys are decoded together with one modular
+     * inversion and each only has its table built once, the signatures are checked in parallel, and a single
+     * modular inversion is shared by all of them.
+     * Since a signature holds h rather than the point U, each U still has to be computed on its own to be hashed.
+     * @param sigs 134 byte signatures as created by createSig
+     * @param ms data associated with each signature
+     * @param pubKeys 67 byte public key for each signature as created by keyPair
+     * @return for each signature, true if it is valid and false otherwise
+     * @throws IllegalArgumentException if the arrays are not the same length.
+     */
+    public static boolean[] verifySigs(byte[][] sigs, byte[][] ms, byte[][] pubKeys) {
+        if (sigs.length != ms.length || sigs.length != pubKeys.length) {
+            throw new IllegalArgumentException("Need the same number of signatures, byte[]s, and public keys.");
+        }
+        boolean[] valid = new boolean[sigs.length];
+        Map<ByteBuffer, Integer> keys = new HashMap<>();
+        List<byte[]> distinct = new ArrayList<>();
+        for (int i = 0; i < sigs.length; i++) {
+            if (sigs[i].length != 67 * 2 || pubKeys[i].length != 67) continue;
+            if (keys.putIfAbsent(ByteBuffer.wrap(pubKeys[i]), distinct.size()) == null) {
+                distinct.add(pubKeys[i]);
+            }
+        }
+        E521CurvePoint[] vs = decodePoints(distinct.toArray(new byte[0][]));
+        List<Integer> rows = new ArrayList<>();
+        List<BigInteger> hs = new ArrayList<>();
+        List<BigInteger[]> scalars = new ArrayList<>();
+        List<E521CurvePoint[]> points = new ArrayList<>();
+        for (int i = 0; i < sigs.length; i++) {
+            if (sigs[i].length != 67 * 2 || pubKeys[i].length != 67) continue;
+            E521CurvePoint v = vs[keys.get(ByteBuffer.wrap(pubKeys[i]))];
+            if (v == null) continue;
+            byte[] hByte = new byte[67];
+            System.arraycopy(sigs[i], 0, hByte, 0, 67);
+            byte[] zByte = new byte[67];
+            System.arraycopy(sigs[i], 67, zByte, 0, 67);
+            BigInteger h = new BigInteger(hByte);
+            BigInteger z = new BigInteger(zByte);
+            rows.add(i);
+            hs.add(h);
+            scalars.add(new BigInteger[] {z, h});
+            points.add(new E521CurvePoint[] {E521CurvePoint.g, v});
+        }
+        E521CurvePoint[] us = E521CurvePoint.multiScalarBatch(scalars.toArray(new BigInteger[0][]),
+                points.toArray(new E521CurvePoint[0][]));
+        IntStream.range(0, us.length).parallel().forEach(j -> {
+            int i = rows.get(j);
+            byte[] temp = KMACXOF256.compute(us[j].getX().toByteArray(), ms[i], 512,
+                    "T".getBytes(StandardCharsets.UTF_8));
+            byte[] hPrime = new byte[65];
+            System.arraycopy(temp, 0, hPrime, 1, 64);
+            valid[i] = (new BigInteger(hPrime)).equals(hs.get(j));
+        });
+        return valid;
+    }
+
+    /**
+     * Derives the keystream and tag of symmetric encryption, (ke || ka) = KMACXOF256(z || pw, "", 1024, "S").
+     * @param z 64 random bytes
+     * @param pw password
+     * @return cipher using "SKE" and "SKA"
+     */
+    private static KeystreamCipher symmetricCipher(byte[] z, byte[] pw) {
+        byte[] zpw = new byte[64 + pw.length];
+        System.arraycopy(z, 0, zpw, 0, 64);
+        System.arraycopy(pw, 0, zpw, 64, pw.length);
+        byte[] keka = KMACXOF256.compute(zpw, new byte[0], 1024, "S".getBytes(StandardCharsets.UTF_8));
+        return new KeystreamCipher(keka, "SKE", "SKA");
+    }
+
+    /**
+     * Derives the keystream and tag of asymmetric encryption, (ke || ka) = KMACXOF256(W_x, "", 1024, "P").
+     * @param w shared point W
+     * @return cipher using "PKE" and "PKA"
+     */
+    private static KeystreamCipher asymmetricCipher(E521CurvePoint w) {
+        return new KeystreamCipher(asymmetricKeys(w), "PKE", "PKA");
+    }
+
+    /**
+     * Derives ke || ka = KMACXOF256(W_x, "", 1024, "P") of asymmetric encryption.
+     * @param w shared point W
+     * @return 128 bytes, ke followed by ka
+     */
+    private static byte[] asymmetricKeys(E521CurvePoint w) {
+        return KMACXOF256.compute(w.getX().toByteArray(), new byte[0], 1024, "P".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the header of an envelope: Z = k * G, the number of recipients, and for each recipient the content key
+     * encrypted under W = k * V and its tag. The public keys are all decoded first, so a bad key is reported before
+     * any multiplication, and the slots are then filled in parallel.
+     * @param key 64 byte content key
+     * @param pubKeys 67 byte public key of each recipient
+     * @return 67 + 4 + 128 * pubKeys.length byte header
+     * @throws IllegalArgumentException if there are no recipients, more than MAX_RECIPIENTS, or a public key is not
+     * a curve point.
+     */
+    private static byte[] wrapKey(byte[] key, byte[][] pubKeys) {
+        if (pubKeys.length == 0 || pubKeys.length > MAX_RECIPIENTS) {
+            throw new IllegalArgumentException("Number of recipients " + pubKeys.length + " must be between 1 and "
+                    + MAX_RECIPIENTS + ".");
+        }
+        E521CurvePoint[] vs = new E521CurvePoint[pubKeys.length];
+        for (int i = 0; i < vs.length; i++) {
+            vs[i] = publicKeys.get(pubKeys[i]);
+        }
+        BigInteger k4 = randomScalar();
+        byte[] out = new byte[67 + 4 + 128 * vs.length];
+        System.arraycopy(encodePoint(E521CurvePoint.g.scalarMultiplySecret(k4)), 0, out, 0, 67);
+        ByteBuffer.wrap(out, 67, 4).putInt(vs.length);
+        IntStream.range(0, vs.length).parallel().forEach(i -> {
+            int off = 67 + 4 + 128 * i;
+            KeystreamCipher cipher = asymmetricCipher(vs[i].scalarMultiplySecret(k4));
+            System.arraycopy(key, 0, out, off, 64);
+            cipher.encrypt(out, off, 64);
+            System.arraycopy(cipher.tag(), 0, out, off + 64, 64);
+        });
+        return out;
+    }
+
+    /**
+     * Reads the header of an envelope and finds the content key encrypted for the private scalar s. W = s * Z is
+     * computed once and every slot is tried, the tag showing which one was encrypted for s.
+     * @param in envelope, left at the start of the symmetric encryption
+     * @param s private scalar of a recipient
+     * @return 64 byte content key, or null if the header is not valid or has no slot for s
+     * @throws IOException if reading fails.
+     */
+    private static byte[] unwrapKey(InputStream in, BigInteger s) throws IOException {
+        byte[] head = in.readNBytes(67 + 4);
+        E521CurvePoint z = head.length < 67 + 4 ? null : decodePointOrNull(head);
+        if (z == null) return null;
+        int n = ByteBuffer.wrap(head, 67, 4).getInt();
+        if (n < 1 || n > MAX_RECIPIENTS) return null;
+        byte[] slots = in.readNBytes(128 * n);
+        if (slots.length < 128 * n) return null;
+        byte[] keka = asymmetricKeys(z.scalarMultiplySecret(s));
+        byte[] key = null;
+        for (int i = 0; i < n; i++) {
+            byte[] candidate = Arrays.copyOfRange(slots, 128 * i, 128 * i + 64);
+            KeystreamCipher cipher = new KeystreamCipher(keka, "PKE", "PKA");
+            cipher.decrypt(candidate, 0, 64);
+            if (MessageDigest.isEqual(cipher.tag(), Arrays.copyOfRange(slots, 128 * i + 64, 128 * i + 128))
+                    && key == null) {
+                key = candidate;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns a random scalar 4k, where k is 512 random bits, for the ephemeral key of asymmetric encryption.
+     * @return random scalar
+     */
+    private static BigInteger randomScalar() {
+        byte[] k = new byte[65];
+        new SecureRandom().nextBytes(k);
+        k[0] = 0;
+        return new BigInteger(k).multiply(BigInteger.valueOf(4));
+    }
+
+    /**
+     * Encrypts the rest of an InputStream, writing the ciphertext followed by the 64 byte tag to out.
+     * @param cipher cipher set up for this encryption
+     * @param in data to encrypt, read until the end of the stream
+     * @param out where the ciphertext and tag are written
+     * @throws IOException if reading or writing fails.
+     */
+    private static void encrypt(KeystreamCipher cipher, InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            cipher.encrypt(buf, 0, n);
+            out.write(buf, 0, n);
+        }
+        out.write(cipher.tag());
+    }
+
+    /**
+     * Decrypts the rest of an InputStream holding ciphertext followed by a 64 byte tag, writing the plaintext to
+     * out as it is produced. The last 64 bytes read are always held back, since they may turn out to be the tag.
+     * @param cipher cipher set up for this ciphertext
+     * @param in ciphertext and tag, read until the end of the stream
+     * @param out where the decrypted data is written
+     * @return true if the tag matched, false otherwise
+     * @throws IOException if reading or writing fails.
+     */
+    private static boolean decrypt(KeystreamCipher cipher, InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE + 64];
+        int have = 0;
+        int n;
+        while ((n = in.read(buf, have, buf.length - have)) != -1) {
+            have += n;
+            if (have == buf.length) {
+                cipher.decrypt(buf, 0, have - 64);
+                out.write(buf, 0, have - 64);
+                System.arraycopy(buf, have - 64, buf, 0, 64);
+                have = 64;
+            }
+        }
+        if (have < 64) return false;
+        cipher.decrypt(buf, 0, have - 64);
+        out.write(buf, 0, have - 64);
+        return MessageDigest.isEqual(cipher.tag(), Arrays.copyOfRange(buf, have - 64, have));
+    }
+
+    /**
+     * Runs a streaming decryption into a temporary file next to out and moves it to out only if the tag matched.
+     * The move is atomic where the file system supports it. The temporary file is always removed.
+     * @param out file to write the decrypted data to
+     * @param decryption writes the plaintext to the stream it is given and returns whether the tag matched
+     * @return true if the tag matched and out was written, false otherwise
+     * @throws IOException if writing or moving the file fails.
+     */
+    static boolean decryptToFile(Path out, Decryption decryption) throws IOException {
+        Path dir = out.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, "." + out.getFileName(), ".tmp");
+        try {
+            boolean valid;
+            try (OutputStream tmpOut = Files.newOutputStream(tmp)) {
+                valid = decryption.decrypt(tmpOut);
+            }
+            if (!valid) return false;
+            try {
+                Files.move(tmp, out, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads an InputStream until its end and absorbs everything read into a KMACXOF256.
+     * @param kmac KMACXOF256 to absorb the data into
+     * @param in stream to read
+     * @throws IOException if reading fails.
+     */
+    private static void absorb(KMACXOF256 kmac, InputStream in) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            kmac.update(buf, 0, n);
+        }
+    }
+
+    /**
+     * Absorbs the contents of a file into a KMACXOF256 by memory mapping it window by window, so the sponge reads
+     * whole lanes directly from the page cache. Files that are not regular files, such as pipes, have no size to
+     * map and are read as a stream instead.
+     * @param kmac KMACXOF256 to absorb the data into
+     * @param file file to read
+     * @param window largest number of bytes mapped at once
+     * @throws IOException if reading fails.
+     */
+    static void absorb(KMACXOF256 kmac, Path file, long window) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                absorb(kmac, in);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += window) {
+                kmac.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(window, size - pos)));
+            }
+        }
+    }
+
+    /**
+     * Derives the private scalar s = 4 * KMACXOF256(pw, "", 512, "K") from a password.
+     * @param pw password
+     * @return private scalar s
+     */
+    static BigInteger privateScalar(byte[] pw) {
+        //Size 65 byte[] used to ensure that the 64 bit result is positive when converted to BigInteger.
+        byte[] temp = new byte[65];
+        System.arraycopy(KMACXOF256.compute(pw, new byte[0],
+                512, "K".getBytes(StandardCharsets.UTF_8)), 0, temp, 1, 64);
+        BigInteger s = new BigInteger(temp);
+        return s.multiply(BigInteger.valueOf(4));
+    }
+
+    /**
+     * Encodes a curve point as 67 bytes, the first 66 being the x coordinate and the 67th specifying if the least
+     * significant bit of the y coordinate is 0 or 1.
+     * @param v curve point to encode
+     * @return 67 byte encoding
+     */
+    static byte[] encodePoint(E521CurvePoint v) {
+        byte[] out = new byte[67];
+        byte[] x = v.getX().toByteArray();
+        System.arraycopy(x, 0, out, 66 - x.length, x.length);
+        out[66] = (byte) (v.getY().testBit(0) ? 1 : 0);
+        return out;
+    }
+
+    /**
+     * Decodes a curve point from 67 bytes starting at off as written by encodePoint.
+     * @param in byte[] containing the encoded point
+     * @param off offset of the encoded point
+     * @return decoded curve point
+     * @throws IllegalArgumentException if no such curve point exists.
+     */
+    static E521CurvePoint decodePoint(byte[] in, int off) {
+        byte[] x = new byte[66];
+        System.arraycopy(in, off, x, 0, 66);
+        return new E521CurvePoint(new BigInteger(x), in[off + 66] == (byte) 1);
+    }
+
+    /**
+     * Decodes many curve points at once, each as written by encodePoint, sharing a single modular inversion.
+     * @param in 67 byte encoded points
+     * @return decoded curve points in the same order, with null for any that are not a curve point
+     */
+    static E521CurvePoint[] decodePoints(byte[][] in) {
+        BigInteger[] xs = new BigInteger[in.length];
+        boolean[] yLsbs = new boolean[in.length];
+        for (int i = 0; i < in.length; i++) {
+            xs[i] = new BigInteger(Arrays.copyOfRange(in[i], 0, 66));
+            yLsbs[i] = in[i][66] == (byte) 1;
+        }
+        return E521CurvePoint.decompress(xs, yLsbs);
+    }
+
+    /**
+     * Decodes the curve point in the first 67 bytes of in, if there is one.
+     * @param in byte[] starting with an encoded point
+     * @return decoded curve point, or null if no such curve point exists
+     */
+    private static E521CurvePoint decodePointOrNull(byte[] in) {
+        try {
+            return decodePoint(in, 0);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A streaming decryption whose output goes to a given stream, used by decryptToFile.
+     */
+    interface Decryption {
+
+        /**
+         * Decrypts, writing the plaintext to out.
+         * @param out where the plaintext is written
+         * @return true if the tag matched, false otherwise
+         * @throws IOException if reading or writing fails.
+         */
+        boolean decrypt(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,110 @@
+package Control;
+
+import Model.E521CurvePoint;
+import Model.LRUCache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Keeps the curve points decoded from 67 byte public keys, each with its table of odd multiples precomputed, for
+ * keys that are encrypted to or verified against again and again. A lookup of a cached key skips both the square
+ * root of decoding and building the table, and lets encryption multiply with that table instead of the ladder.
+ * The cache holds at most a fixed number of keys and drops the least recently used one when it is full. Keys that
+ * are not a curve point are never cached.
+ * All methods may be called from any number of threads.
+ */
+public class PublicKeyCache {
+
+    /**
+     * Decoded points by their 67 byte encoding, in least to most recently used order.
+     */
+    private final LRUCache<ByteBuffer, E521CurvePoint> points;
+
+    /**
+     * Number of lookups that found the key.
+     */
+    private long hits = 0;
+
+    /**
+     * Number of lookups that had to decode the key.
+     */
+    private long misses = 0;
+
+    /**
+     * Creates an empty cache.
+     * @param capacity most keys held at once
+     */
+    public PublicKeyCache(int capacity) {
+        points = new LRUCache<>(capacity);
+    }
+
+    /**
+     * Returns the curve point of a public key, with its table precomputed. Only the first 67 bytes are read.
+     * @param pubByte 67 byte public key as created by keyPair
+     * @return decoded curve point
+     * @throws IllegalArgumentException if pubByte is shorter than 67 bytes or is not a curve point.
+     */
+    public E521CurvePoint get(byte[] pubByte) {
+        if (pubByte.length < 67) {
+            throw new IllegalArgumentException("Public key is " + pubByte.length + " bytes. Must be 67.");
+        }
+        ByteBuffer key = ByteBuffer.wrap(Arrays.copyOf(pubByte, 67));
+        E521CurvePoint v;
+        synchronized (points) {
+            v = points.get(key);
+            if (v != null) {
+                hits++;
+                return v;
+            }
+            misses++;
+        }
+        v = Operations.decodePoint(pubByte, 0).precompute();
+        synchronized (points) {
+            E521CurvePoint first = points.putIfAbsent(key, v);
+            return first != null ? first : v;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     * @return number of hits
+     */
+    public long hits() {
+        synchronized (points) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that had to decode the public key.
+     * @return number of misses
+     */
+    public long misses() {
+        synchronized (points) {
+            return misses;
+        }
+    }
+
+    /**
+     * Returns the number of keys currently held.
+     * @return number of cached public keys
+     */
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Drops all cached keys. The hit and miss counts are kept.
+     */
+    public void clear() {
+        points.clear();
+    }
+}
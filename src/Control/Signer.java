@@ -0,0 +1,192 @@
+package Control;
+
+import Model.E521CurvePoint;
+import Model.KMACXOF256;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Creates signatures with a single private key, in the same format as Operations.createSig. The private scalar is
+ * derived from the password and the nonce KMACXOF256 is keyed with it once, when the signer is created, so each
+ * signature only pays for hashing its data twice and one multiple of g. Multiples of g come from the table shared
+ * by the whole application, which is only read from, so any number of signatures can be created at once.
+ * Lists of data or files are signed in parallel on the pool given to the constructor.
+ */
+public class Signer {
+
+    /**
+     * Customization string of the KMACXOF256 that derives the nonce k.
+     */
+    private static final byte[] nonceS = "N".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Customization string of the KMACXOF256 that computes h.
+     */
+    private static final byte[] tagS = "T".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Private scalar s derived from the password.
+     */
+    private final BigInteger s;
+
+    /**
+     * KMACXOF256 with s absorbed as the key, copied for each signature.
+     */
+    private final KMACXOF256 nonce;
+
+    /**
+     * Pool lists are signed on.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Creates a signer for the key of a password that signs lists on the common ForkJoinPool.
+     * @param pw password
+     */
+    public Signer(byte[] pw) {
+        this(pw, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a signer for the key of a password that signs lists on the given pool.
+     * @param pw password
+     * @param pool pool to sign lists on
+     */
+    public Signer(byte[] pw, ExecutorService pool) {
+        this(Operations.privateScalar(pw), pool);
+    }
+
+    /**
+     * Creates a signer for a private scalar that has already been derived from a password, such as one held by a
+     * KeyCache.
+     * @param s private scalar
+     * @param pool pool to sign lists on
+     */
+    Signer(BigInteger s, ExecutorService pool) {
+        this.s = s;
+        nonce = new KMACXOF256(s.toByteArray(), nonceS);
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a signature for a byte[].
+     * @param m data to sign
+     * @return 134 byte signature
+     */
+    public byte[] sign(byte[] m) {
+        KMACXOF256 k = nonce.copy();
+        k.update(m);
+        return signature(k, m);
+    }
+
+    /**
+     * Creates a signature for a file. The file is read into memory once and both the nonce and h are computed from
+     * that copy, since reading it twice would let a file that changes in between be signed with the same nonce for
+     * two different values of h, which reveals the private scalar.
+     * @param file file to sign, at most 2 GB
+     * @return 134 byte signature
+     * @throws IOException if reading the file fails.
+     */
+    public byte[] sign(Path file) throws IOException {
+        return sign(Files.readAllBytes(file));
+    }
+
+    /**
+     * Creates a signature for each byte[], in parallel.
+     * @param ms data to sign
+     * @return 134 byte signature for each byte[], in the same order
+     */
+    public byte[][] signAll(byte[][] ms) {
+        List<Callable<byte[]>> tasks = new ArrayList<>();
+        for (byte[] m : ms) {
+            tasks.add(() -> sign(m));
+        }
+        try {
+            return run(tasks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a signature for each file, in parallel.
+     * @param files files to sign
+     * @return 134 byte signature for each file, in the same order
+     * @throws IOException if reading any of the files fails.
+     */
+    public byte[][] signAll(List<Path> files) throws IOException {
+        List<Callable<byte[]>> tasks = new ArrayList<>();
+        for (Path file : files) {
+            tasks.add(() -> sign(file));
+        }
+        return run(tasks);
+    }
+
+    /**
+     * Finishes a signature from the nonce KMACXOF256 once it has absorbed the data.
+     * k = 4 * KMACXOF256(s, m, 512, "N"), U = k * G, h = KMACXOF256(U_x, m, 512, "T"), z = (k - hs) mod r.
+     * @param k nonce KMACXOF256 with m absorbed
+     * @param m data being signed
+     * @return 134 byte signature, h followed by z
+     */
+    private byte[] signature(KMACXOF256 k, byte[] m) {
+        byte[] temp = new byte[65];
+        k.squeeze(temp, 1, 64);
+        BigInteger k4 = new BigInteger(temp).multiply(BigInteger.valueOf(4));
+        E521CurvePoint u = E521CurvePoint.g.scalarMultiplySecret(k4);
+        KMACXOF256 t = new KMACXOF256(u.getX().toByteArray(), tagS);
+        t.update(m);
+        t.squeeze(temp, 1, 64);
+        BigInteger h = new BigInteger(temp);
+        BigInteger z = k4.subtract(h.multiply(s)).mod(E521CurvePoint.r);
+        byte[] hByte = h.toByteArray();
+        byte[] zByte = z.toByteArray();
+        byte[] out = new byte[67 * 2];
+        System.arraycopy(hByte, 0, out, 67 - hByte.length, hByte.length);
+        System.arraycopy(zByte, 0, out, out.length - zByte.length, zByte.length);
+        return out;
+    }
+
+    /**
+     * Runs the signing tasks on the pool and waits for all of them.
+     * @param tasks one task per signature
+     * @return the signatures, in the same order as the tasks
+     * @throws IOException if a task failed to read its data.
+     */
+    private byte[][] run(List<Callable<byte[]>> tasks) throws IOException {
+        byte[][] out = new byte[tasks.size()][];
+        try {
+            List<Future<byte[]>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < out.length; i++) {
+                out[i] = results.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while signing.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return out;
+    }
+}
@@ -1,6 +1,14 @@
 package Model;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 /*
     TCSS 487
@@ -42,21 +50,26 @@ public class E521CurvePoint {
     public static final E521CurvePoint g = new E521CurvePoint(BigInteger.valueOf(4), false);
 
     /**
-     * Stores the x coordinate of the curve point.
+     * Stores the x coordinate of the curve point as a fully reduced E521Field element.
      */
-    private final BigInteger x;
+    final long[] x;
 
     /**
-     * Stores the y coordinate of the curve point.
+     * Stores the y coordinate of the curve point as a fully reduced E521Field element.
      */
-    private final BigInteger y;
+    final long[] y;
+
+    /**
+     * Table of odd multiples of this point kept by precompute, or null if it has not been asked for.
+     */
+    private volatile E521WindowTable table;
 
     /**
      * Create a curve point at the neutral element of addition. Values taken from the programming assignment.
      */
     E521CurvePoint() {
-        x = BigInteger.ZERO;
-        y = BigInteger.ONE;
+        x = E521Field.create(0);
+        y = E521Field.create(1);
     }
 
     /**
@@ -66,7 +79,18 @@ public class E521CurvePoint {
      * @throws IllegalArgumentException if no such curve point exists.
      */
     public E521CurvePoint(BigInteger x, boolean yLsb) {
-        this(x, calculateY(x, yLsb));
+        if (x == null) {
+            throw new IllegalArgumentException("Not a valid curve point. x: null.");
+        }
+        this.x = E521Field.fromBigInteger(x);
+        long[] u = E521Field.create();
+        long[] v = E521Field.create();
+        radicand(u, v, this.x);
+        y = E521Field.create();
+        if (!E521Field.sqrtRatio(y, u, v)) {
+            throw new IllegalArgumentException("Not a valid curve point. x: " + x.mod(p) + ", yLsb: " + yLsb + ".");
+        }
+        chooseRoot(y, yLsb);
     }
 
     /**
@@ -80,54 +104,224 @@ public class E521CurvePoint {
         if (x == null || y == null) {
             throw new IllegalArgumentException("Not a valid curve point. x: " + x + ", y: " + y + ".");
         }
-        x = x.mod(p);
-        y = y.mod(p);
-        BigInteger left = (x.pow(2)).add(y.pow(2)).mod(p);
-        BigInteger right = BigInteger.ONE.add(d.multiply(x.pow(2)
-                .multiply(y.pow(2)))).mod(p);
-        if (left.compareTo(right) == 0) {
-            this.x = x;
-            this.y = y;
+        long[] fx = E521Field.fromBigInteger(x);
+        long[] fy = E521Field.fromBigInteger(y);
+        if (onCurve(fx, fy)) {
+            this.x = fx;
+            this.y = fy;
         } else {
-            throw new IllegalArgumentException("Not a valid curve point. x: " + x + ", y: " + y + ".");
+            throw new IllegalArgumentException("Not a valid curve point. x: " + x.mod(p) + ", y: " + y.mod(p) + ".");
+        }
+    }
+
+    /**
+     * Creates the curve points with the given x coordinates and least significant bits of their y coordinates, the
+     * same as calling E521CurvePoint(xs[i], yLsbs[i]) for each. The denominators of y^2 are inverted together with a
+     * single modular inversion, leaving each point with one square root, which is only squarings.
+     * @param xs x coordinate of each point
+     * @param yLsbs least significant bit of the y coordinate of each point
+     * @return the curve points in the same order, with null where no such curve point exists
+     * @throws IllegalArgumentException if the arrays are not the same length.
+     */
+    public static E521CurvePoint[] decompress(BigInteger[] xs, boolean[] yLsbs) {
+        if (xs.length != yLsbs.length) {
+            throw new IllegalArgumentException("Number of x coordinates " + xs.length + " does not match number of "
+                    + "y bits " + yLsbs.length + ".");
+        }
+        long[][] fx = new long[xs.length][];
+        long[][] u = new long[xs.length][E521Field.LIMBS];
+        long[][] v = new long[xs.length][E521Field.LIMBS];
+        for (int i = 0; i < xs.length; i++) {
+            fx[i] = E521Field.fromBigInteger(xs[i]);
+            radicand(u[i], v[i], fx[i]);
         }
+        E521Field.invert(v, v);
+        E521CurvePoint[] out = new E521CurvePoint[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            E521Field.mul(u[i], u[i], v[i]);
+            long[] fy = E521Field.create();
+            if (E521Field.sqrt(fy, u[i])) {
+                chooseRoot(fy, yLsbs[i]);
+                out[i] = new E521CurvePoint(fx[i], fy);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Create a curve point from field elements that are already fully reduced. Used for the results of curve
+     * arithmetic, which are known to be on the curve, so the curve check is skipped. The arrays are not copied.
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    E521CurvePoint(long[] x, long[] y) {
+        this.x = x;
+        this.y = y;
     }
 
     /**
      * Add this curve point to another curve point using the addition formula described in the programming
      * assignment. Returns a new curve point based on that addition.
+     * The addition is done in extended coordinates so that only a single modular inversion is needed.
      * @param oth curve point to be added
      * @return resulting curve point after addition.
      */
     public E521CurvePoint add(E521CurvePoint oth) {
-        BigInteger num1 = x.multiply(oth.y).add(y.multiply(oth.x)).mod(p);
-        BigInteger num2 = y.multiply(oth.y).subtract(x.multiply(oth.x)).mod(p);
-        BigInteger mult = d.multiply(x).multiply(oth.x).multiply(y).multiply(oth.y);
-        BigInteger den1 = BigInteger.ONE.add(mult).mod(p);
-        BigInteger den2 = BigInteger.ONE.subtract(mult).mod(p);
-        den1 = den1.modInverse(p);
-        den2 = den2.modInverse(p);
-        return new E521CurvePoint(num1.multiply(den1).mod(p), num2.multiply(den2).mod(p));
+        E521ExtendedPoint v = new E521ExtendedPoint(this);
+        v.add(new E521ExtendedPoint(oth));
+        return v.toAffine();
     }
 
     /**
      * Multiplies this curve point by a scalar multiple using the formula described in the programming assignment.
      * Returns a new curve point.
+     * The doublings and additions are done in extended coordinates and the result is only converted back to
+     * affine coordinates once at the end. Multiples of g are looked up in a precomputed table, any other point
+     * uses a width-5 NAF with a table of odd multiples, which is built for this call unless precompute kept one.
      * @param s scalar value to multiply by
      * @return curve point after scalar multiplication
      */
     public E521CurvePoint scalarMultiply(BigInteger s) {
-        if(s.equals(BigInteger.ZERO)) {
+        if(s.signum() == 0) {
             return new E521CurvePoint();
         }
-        E521CurvePoint v = new E521CurvePoint(x, y);
-        for (int i = s.bitLength() - 2; i >= 0; i--) {
-            v = v.add(v);
-            if(s.testBit(i)) {
-                v = v.add(this);
+        if (this == g || equals(g)) {
+            return E521FixedBase.generator().multiply(s);
+        }
+        return table().multiply(s);
+    }
+
+    /**
+     * Multiplies this curve point by a secret scalar, such as a private key or a nonce, giving the same result as
+     * scalarMultiply. Multiples of g read every entry of the shared precomputed table, a point with a table kept by
+     * precompute reads every entry of that table for each window of 4 bits, any other point uses a Montgomery ladder
+     * with a fixed number of steps, and none of them branch on the scalar, so the time taken does not reveal the
+     * scalar. The ladder costs about twice as much as scalarMultiply, the kept table a little more than it.
+     * @param s scalar value to multiply by
+     * @return curve point after scalar multiplication
+     */
+    public E521CurvePoint scalarMultiplySecret(BigInteger s) {
+        if (this == g || equals(g)) {
+            return E521FixedBase.generator().multiplySecret(s);
+        }
+        E521WindowTable t = table;
+        if (t != null) {
+            return t.multiplySecret(s);
+        }
+        return E521Ladder.multiply(this, s);
+    }
+
+    /**
+     * Builds and keeps the table of odd multiples of this point, so that scalarMultiply, scalarMultiplySecret and
+     * multiScalar no longer build one for each call and scalarMultiplySecret can use windows instead of the ladder.
+     * Worth it for points that are multiplied again and again, such as a public key many messages are encrypted to.
+     * The table holds 8 points, about 3 KB.
+     * @return this curve point
+     */
+    public E521CurvePoint precompute() {
+        if (table == null) {
+            table = new E521WindowTable(this);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the table kept by precompute, or a new one if there is none.
+     * @return table of odd multiples of this point
+     */
+    private E521WindowTable table() {
+        E521WindowTable t = table;
+        return t != null ? t : new E521WindowTable(this);
+    }
+
+    /**
+     * Computes the sum of scalars[i] * points[i] in a single pass, which is cheaper than multiplying each point
+     * separately and adding the results. All points other than g share one chain of doublings using Straus'
+     * interleaving of their wNAF digits, and the multiples of g are then added from its precomputed table.
+     * @param scalars scalar for each point
+     * @param points curve points
+     * @return curve point equal to the sum of the scalar multiplications
+     * @throws IllegalArgumentException if the arrays are not the same length.
+     */
+    public static E521CurvePoint multiScalar(BigInteger[] scalars, E521CurvePoint[] points) {
+        if (scalars.length != points.length) {
+            throw new IllegalArgumentException("Number of scalars " + scalars.length + " does not match number of "
+                    + "points " + points.length + ".");
+        }
+        BigInteger gs = BigInteger.ZERO;
+        List<E521WindowTable> tables = new ArrayList<>();
+        List<BigInteger> ss = new ArrayList<>();
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == g || points[i].equals(g)) {
+                gs = gs.add(scalars[i]);
+            } else if (scalars[i].signum() != 0) {
+                tables.add(points[i].table());
+                ss.add(scalars[i]);
             }
         }
-        return v;
+        E521ExtendedPoint v = E521WindowTable.multiply(tables.toArray(new E521WindowTable[0]),
+                ss.toArray(new BigInteger[0]));
+        if (gs.signum() != 0) {
+            E521FixedBase.generator().multiplyAdd(v, gs);
+        }
+        return v.toAffine();
+    }
+
+    /**
+     * Computes multiScalar(scalars[i], points[i]) for every i. Each distinct point only has its table built once,
+     * however many rows it appears in, the rows are computed in parallel, and all results are converted back to
+     * affine coordinates with a single modular inversion. Points are matched by identity, so pass the same
+     * E521CurvePoint object for a point that is repeated.
+     * @param scalars scalars of each row
+     * @param points curve points of each row
+     * @return curve point for each row equal to the sum of its scalar multiplications
+     * @throws IllegalArgumentException if the arrays or any of their rows are not the same length.
+     */
+    public static E521CurvePoint[] multiScalarBatch(BigInteger[][] scalars, E521CurvePoint[][] points) {
+        if (scalars.length != points.length) {
+            throw new IllegalArgumentException("Number of scalar rows " + scalars.length + " does not match number "
+                    + "of point rows " + points.length + ".");
+        }
+        Set<E521CurvePoint> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < points.length; i++) {
+            if (scalars[i].length != points[i].length) {
+                throw new IllegalArgumentException("Number of scalars " + scalars[i].length + " does not match "
+                        + "number of points " + points[i].length + " in row " + i + ".");
+            }
+            for (E521CurvePoint pt : points[i]) {
+                if (pt != g && !pt.equals(g)) {
+                    distinct.add(pt);
+                }
+            }
+        }
+        List<E521CurvePoint> keys = new ArrayList<>(distinct);
+        E521WindowTable[] built = keys.parallelStream().map(E521CurvePoint::table).toArray(E521WindowTable[]::new);
+        Map<E521CurvePoint, E521WindowTable> tables = new IdentityHashMap<>();
+        for (int i = 0; i < built.length; i++) {
+            tables.put(keys.get(i), built[i]);
+        }
+        E521ExtendedPoint[] sums = new E521ExtendedPoint[scalars.length];
+        IntStream.range(0, scalars.length).parallel().forEach(i -> {
+            BigInteger gs = BigInteger.ZERO;
+            List<E521WindowTable> rowTables = new ArrayList<>();
+            List<BigInteger> rowScalars = new ArrayList<>();
+            for (int j = 0; j < points[i].length; j++) {
+                E521WindowTable t = tables.get(points[i][j]);
+                if (t == null) {
+                    gs = gs.add(scalars[i][j]);
+                } else if (scalars[i][j].signum() != 0) {
+                    rowTables.add(t);
+                    rowScalars.add(scalars[i][j]);
+                }
+            }
+            E521ExtendedPoint v = E521WindowTable.multiply(rowTables.toArray(new E521WindowTable[0]),
+                    rowScalars.toArray(new BigInteger[0]));
+            if (gs.signum() != 0) {
+                E521FixedBase.generator().multiplyAdd(v, gs);
+            }
+            sums[i] = v;
+        });
+        return E521ExtendedPoint.toAffine(sums);
     }
 
     /**
@@ -137,7 +331,7 @@ public class E521CurvePoint {
      * @return true if equal, false otherwise
      */
     public boolean equals(E521CurvePoint oth) {
-        return (x.equals(oth.x) && y.equals(oth.y));
+        return Arrays.equals(x, oth.x) && Arrays.equals(y, oth.y);
     }
 
     /**
@@ -145,7 +339,7 @@ public class E521CurvePoint {
      * @return x value
      */
     public BigInteger getX() {
-        return x.add(BigInteger.ZERO);
+        return E521Field.toBigInteger(x);
     }
 
     /**
@@ -153,40 +347,56 @@ public class E521CurvePoint {
      * @return y value
      */
     public BigInteger getY() {
-        return y.add(BigInteger.ZERO);
+        return E521Field.toBigInteger(y);
     }
 
     /**
-     * Used to calculate an appropriate y value for the given x value where the least significant bit of the y value
-     * matches yLsb.
-     * @param x x coordinate of curve point
-     * @param yLsb least significant bit of y coordinate of curve point
-     * @return y value if it exists, null otherwise.
+     * Checks if the given coordinates satisfy the curve equation.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if (x, y) is on the curve, false otherwise
      */
-    private static BigInteger calculateY(BigInteger x, boolean yLsb) {
-        BigInteger radicand = BigInteger.ONE.subtract(x.modPow(BigInteger.TWO, p));
-        radicand = radicand.multiply(BigInteger.ONE.subtract(d.multiply(x.modPow(BigInteger.TWO, p))).modInverse(p));
-        return sqrt(radicand, yLsb);
+    private static boolean onCurve(long[] x, long[] y) {
+        long[] x2 = E521Field.create();
+        long[] y2 = E521Field.create();
+        long[] left = E521Field.create();
+        long[] right = E521Field.create();
+        E521Field.sqr(x2, x);
+        E521Field.sqr(y2, y);
+        E521Field.add(left, x2, y2);
+        //right = 1 + d * x^2 * y^2 = 1 - 376014 * x^2 * y^2
+        E521Field.mul(right, x2, y2);
+        E521Field.mulSmall(right, right, -d.longValue());
+        E521Field.sub(right, E521Field.create(1), right);
+        return E521Field.equal(left, right);
     }
 
     /**
-     * Compute a square root of v mod p with a specified least significant bit, if such a root exists.
-     * Taken from the project assignment specifications.
-     * @param   v   the radicand.
-     * @param   lsb desired least significant bit (true: 1, false: 0).
-     * @return  a square root r of v mod p with r mod 2 = 1 iff lsb = true if such a root exists, otherwise null.
+     * Writes the numerator and denominator of y^2 = (1 - x^2) / (1 - d * x^2) for the given x. As d is not a square
+     * mod p the denominator is never 0.
+     * @param u set to 1 - x^2
+     * @param v set to 1 - d * x^2 = 1 + 376014 * x^2
+     * @param x x coordinate
      */
-    private static BigInteger sqrt(BigInteger v, boolean lsb) {
-        assert (E521CurvePoint.p.testBit(0) && E521CurvePoint.p.testBit(1)); // p = 3 (mod 4)
-        if (v.signum() == 0) {
-            return BigInteger.ZERO;
-        }
-        BigInteger r = v.modPow(E521CurvePoint.p.shiftRight(2).add(BigInteger.ONE), E521CurvePoint.p);
-        if (r.testBit(0) != lsb) {
-            r = E521CurvePoint.p.subtract(r); // correct the lsb
+    private static void radicand(long[] u, long[] v, long[] x) {
+        E521Field.sqr(v, x);
+        E521Field.sub(u, E521Field.create(1), v);
+        E521Field.mulSmall(v, v, -d.longValue());
+        E521Field.add(v, v, E521Field.create(1));
+    }
 
+    /**
+     * Replaces a square root y by p - y if needed, so that its least significant bit matches yLsb. A root of 0 is
+     * left as 0. y is fully reduced afterwards.
+     * @param y square root
+     * @param yLsb desired least significant bit (true: 1, false: 0)
+     */
+    private static void chooseRoot(long[] y, boolean yLsb) {
+        E521Field.normalize(y);
+        if (((y[0] & 1) == 1) != yLsb) {
+            E521Field.neg(y, y);
+            E521Field.normalize(y);
         }
-        return (r.multiply(r).subtract(v).mod(E521CurvePoint.p).signum() == 0) ? r : null;
     }
 
     /**
@@ -194,7 +404,7 @@ public class E521CurvePoint {
      * @return (x, y)
      */
     public String toString() {
-        return "(" + x.toString() + ", " + y.toString() + ")";
+        return "(" + getX().toString() + ", " + getY().toString() + ")";
     }
 
 }
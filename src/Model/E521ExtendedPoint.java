@@ -0,0 +1,286 @@
+package Model;
+
+import static Model.E521Field.*;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/18/2021
+ */
+
+/**
+ * Stores a point on the E-521 curve in extended coordinates (X:Y:Z:T) where x = X/Z, y = Y/Z and T = XY/Z.
+ * Addition and doubling in this form need no modular inversions, so a scalar multiplication only has to convert back
+ * to an E521CurvePoint once at the very end.
+ * Formulas are add-2008-hwcd and dbl-2008-hwcd from "Twisted Edwards Curves Revisited" by Huseyin Hisil,
+ * Kenneth Koon-Ho Wong, Gary Carter, and Ed Dawson, with a = 1. As d is not a square mod p the addition formula is
+ * complete, so it is also correct for doubling and for the neutral element.
+ * Points are mutable and the arithmetic methods overwrite this point with the result, using E521Field on fixed
+ * size limb arrays so that a chain of additions and doublings does not allocate.
+ */
+final class E521ExtendedPoint {
+
+    /**
+     * Absolute value of the curve constant d = -376014.
+     */
+    private static final long D_ABS = 376014L;
+
+    /**
+     * X coordinate, x * Z.
+     */
+    private final long[] X = create();
+
+    /**
+     * Y coordinate, y * Z.
+     */
+    private final long[] Y = create();
+
+    /**
+     * Z coordinate, never 0 mod p.
+     */
+    private final long[] Z = create();
+
+    /**
+     * T coordinate, x * y * Z.
+     */
+    private final long[] T = create();
+
+    /**
+     * Temporary values used during addition and doubling. Only allocated once this point is used as the
+     * destination of arithmetic, so points that are only read from, such as table entries, do not carry them.
+     */
+    private long[][] tmp;
+
+    /**
+     * Create an extended point at the neutral element of addition.
+     */
+    E521ExtendedPoint() {
+        setNeutral();
+    }
+
+    /**
+     * Create an extended point from an affine curve point, using Z = 1.
+     * @param pt curve point
+     */
+    E521ExtendedPoint(E521CurvePoint pt) {
+        set(pt);
+    }
+
+    /**
+     * Create a copy of another extended point.
+     * @param pt point to copy
+     */
+    E521ExtendedPoint(E521ExtendedPoint pt) {
+        set(pt);
+    }
+
+    /**
+     * Sets this point to the neutral element (0, 1).
+     */
+    void setNeutral() {
+        E521Field.set(X, 0);
+        E521Field.set(Y, 1);
+        E521Field.set(Z, 1);
+        E521Field.set(T, 0);
+    }
+
+    /**
+     * Sets this point to an affine curve point, using Z = 1.
+     * @param pt curve point
+     */
+    void set(E521CurvePoint pt) {
+        copy(X, pt.x);
+        copy(Y, pt.y);
+        E521Field.set(Z, 1);
+        mul(T, pt.x, pt.y);
+    }
+
+    /**
+     * Sets this point to the same coordinates as another extended point.
+     * @param pt point to copy
+     */
+    void set(E521ExtendedPoint pt) {
+        copy(X, pt.X);
+        copy(Y, pt.Y);
+        copy(Z, pt.Z);
+        copy(T, pt.T);
+    }
+
+    /**
+     * Adds another point to this point with the unified addition formula. oth may be this point.
+     * Cost is 9 multiplications and a multiplication by the small constant d.
+     * @param oth point to be added
+     */
+    void add(E521ExtendedPoint oth) {
+        add(oth, false);
+    }
+
+    /**
+     * Subtracts another point from this point by adding its negation, without modifying oth. oth may be this point.
+     * @param oth point to be subtracted
+     */
+    void sub(E521ExtendedPoint oth) {
+        add(oth, true);
+    }
+
+    /**
+     * Adds oth or its negation (-x, y) to this point. Negating oth changes the sign of X2 and T2, so only the
+     * signs of A and C and the second factor of E change.
+     * @param oth point to be added
+     * @param negate true to add -oth instead of oth
+     */
+    private void add(E521ExtendedPoint oth, boolean negate) {
+        long[][] t = temps();
+        long[] a = t[0], b = t[1], c = t[2], d = t[3], e = t[4], f = t[5];
+        mul(a, X, oth.X);
+        mul(b, Y, oth.Y);
+        //c = -d * T1 * T2 since the curve constant d is negative
+        mul(c, T, oth.T);
+        mulSmall(c, c, D_ABS);
+        if (negate) {
+            neg(a, a);
+            neg(c, c);
+            E521Field.sub(f, oth.Y, oth.X);
+        } else {
+            E521Field.add(f, oth.X, oth.Y);
+        }
+        mul(d, Z, oth.Z);
+        E521Field.add(e, X, Y);
+        mul(e, e, f);
+        E521Field.sub(e, e, a);
+        E521Field.sub(e, e, b);             // E
+        E521Field.add(f, d, c);             // F = D - dT1T2
+        E521Field.sub(d, d, c);             // G = D + dT1T2
+        E521Field.sub(b, b, a);             // H = B - A
+        mul(X, e, f);
+        mul(Y, d, b);
+        mul(T, e, b);
+        mul(Z, f, d);
+    }
+
+    /**
+     * Doubles this point with the dedicated doubling formula.
+     * Cost is 4 multiplications and 4 squarings.
+     */
+    void dbl() {
+        long[][] t = temps();
+        long[] a = t[0], b = t[1], c = t[2], e = t[3], g = t[4], h = t[5];
+        sqr(a, X);
+        sqr(b, Y);
+        sqr(c, Z);
+        E521Field.add(c, c, c);
+        E521Field.add(e, X, Y);
+        sqr(e, e);
+        E521Field.sub(e, e, a);
+        E521Field.sub(e, e, b);             // E
+        E521Field.add(g, a, b);             // G = A + B
+        E521Field.sub(h, a, b);             // H = A - B
+        E521Field.sub(c, g, c);             // F = G - C
+        mul(X, e, c);
+        mul(Y, g, h);
+        mul(T, e, h);
+        mul(Z, c, g);
+    }
+
+    /**
+     * Swaps the coordinates of this point and oth if mask is all ones and leaves both unchanged if it is 0, in the
+     * same time either way.
+     * @param oth point to swap with
+     * @param mask -1 to swap, 0 to keep
+     */
+    void cswap(E521ExtendedPoint oth, long mask) {
+        E521Field.cswap(X, oth.X, mask);
+        E521Field.cswap(Y, oth.Y, mask);
+        E521Field.cswap(Z, oth.Z, mask);
+        E521Field.cswap(T, oth.T, mask);
+    }
+
+    /**
+     * Sets this point to oth if mask is all ones and leaves it unchanged if it is 0, in the same time either way.
+     * @param oth point to copy
+     * @param mask -1 to copy, 0 to keep
+     */
+    void cmov(E521ExtendedPoint oth, long mask) {
+        E521Field.cmov(X, oth.X, mask);
+        E521Field.cmov(Y, oth.Y, mask);
+        E521Field.cmov(Z, oth.Z, mask);
+        E521Field.cmov(T, oth.T, mask);
+    }
+
+    /**
+     * Negates this point if mask is all ones and leaves it unchanged if it is 0, in the same time either way.
+     * @param mask -1 to negate, 0 to keep
+     */
+    void cnegate(long mask) {
+        long[][] t = temps();
+        neg(t[0], X);
+        neg(t[1], T);
+        E521Field.cmov(X, t[0], mask);
+        E521Field.cmov(T, t[1], mask);
+    }
+
+    /**
+     * Negates this point, (x, y) becomes (-x, y).
+     */
+    void negate() {
+        neg(X, X);
+        neg(T, T);
+    }
+
+    /**
+     * Converts this point back to affine coordinates. This is the only step that needs a modular inversion.
+     * @return the equivalent curve point
+     */
+    E521CurvePoint toAffine() {
+        long[] zInv = create();
+        long[] x = create();
+        long[] y = create();
+        invert(zInv, Z);
+        mul(x, X, zInv);
+        mul(y, Y, zInv);
+        normalize(x);
+        normalize(y);
+        return new E521CurvePoint(x, y);
+    }
+
+    /**
+     * Converts many points back to affine coordinates with a single modular inversion using Montgomery's
+     * simultaneous inversion: the Z coordinates are multiplied together, the product is inverted once, and each
+     * inverse is recovered with two more multiplications.
+     * @param pts points to convert
+     * @return the equivalent curve points, in the same order
+     */
+    static E521CurvePoint[] toAffine(E521ExtendedPoint[] pts) {
+        E521CurvePoint[] out = new E521CurvePoint[pts.length];
+        if (pts.length == 0) {
+            return out;
+        }
+        long[][] zInv = new long[pts.length][];
+        for (int i = 0; i < pts.length; i++) {
+            zInv[i] = pts[i].Z.clone();
+        }
+        invert(zInv, zInv);
+        for (int i = 0; i < pts.length; i++) {
+            long[] x = create();
+            long[] y = create();
+            mul(x, pts[i].X, zInv[i]);
+            mul(y, pts[i].Y, zInv[i]);
+            normalize(x);
+            normalize(y);
+            out[i] = new E521CurvePoint(x, y);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the temporary values used by add and dbl, allocating them the first time.
+     * @return six field elements
+     */
+    private long[][] temps() {
+        if (tmp == null) {
+            tmp = new long[6][LIMBS];
+        }
+        return tmp;
+    }
+}
@@ -0,0 +1,586 @@
+package Model;
+
+import java.math.BigInteger;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/18/2021
+ */
+
+/**
+ * Arithmetic in the field GF(p) for the Mersenne prime p = 2^521 - 1 used by the E-521 curve.
+ * A field element is a long[] of nine 58 bit limbs, least significant limb first, so its value is the sum of
+ * limb i * 2^(58i). Because 2^522 = 2 (mod p), anything that overflows the top limb can be folded back into the
+ * bottom limb with a shift and an add instead of a division.
+ * All operations write their result into an existing array, which may be the same array as any of the inputs, so
+ * curve arithmetic built on top of this class does not need to allocate.
+ * Results are kept loosely reduced, every limb is less than 2^58 + 2, but are not necessarily less than p.
+ * Use normalize, toBigInteger, or equal where the canonical value is needed.
+ */
+final class E521Field {
+
+    /**
+     * Number of limbs in a field element.
+     */
+    static final int LIMBS = 9;
+
+    /**
+     * Mask for the low 58 bits of a limb.
+     */
+    private static final long M = (1L << 58) - 1;
+
+    /**
+     * Limbs of 4p with the top limb allowed to be larger than usual, added before subtracting so that no limb
+     * becomes negative. 4p = 2^523 - 4.
+     */
+    private static final long[] P4 = new long[] {
+            (M << 1) - 2, M << 1, M << 1, M << 1, M << 1, M << 1, M << 1, M << 1, M << 1};
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private E521Field() {
+    }
+
+    /**
+     * Creates a new field element equal to 0.
+     * @return new field element
+     */
+    static long[] create() {
+        return new long[LIMBS];
+    }
+
+    /**
+     * Creates a new field element equal to a small non-negative value.
+     * @param v value, less than 2^58
+     * @return new field element
+     */
+    static long[] create(long v) {
+        long[] z = new long[LIMBS];
+        z[0] = v;
+        return z;
+    }
+
+    /**
+     * Creates a new field element from a BigInteger, which is reduced mod p first.
+     * @param v value
+     * @return new field element
+     */
+    static long[] fromBigInteger(BigInteger v) {
+        v = v.mod(E521CurvePoint.p);
+        long[] z = new long[LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            z[i] = v.shiftRight(58 * i).longValue() & M;
+        }
+        return z;
+    }
+
+    /**
+     * Returns the canonical value of a field element, in the range [0, p), as a BigInteger.
+     * @param x field element
+     * @return value of x
+     */
+    static BigInteger toBigInteger(long[] x) {
+        long[] t = x.clone();
+        normalize(t);
+        BigInteger v = BigInteger.ZERO;
+        for (int i = LIMBS - 1; i >= 0; i--) {
+            v = v.shiftLeft(58).or(BigInteger.valueOf(t[i]));
+        }
+        return v;
+    }
+
+    /**
+     * Copies x into z.
+     * @param z destination
+     * @param x source
+     */
+    static void copy(long[] z, long[] x) {
+        System.arraycopy(x, 0, z, 0, LIMBS);
+    }
+
+    /**
+     * Sets z to a small non-negative value.
+     * @param z destination
+     * @param v value, less than 2^58
+     */
+    static void set(long[] z, long v) {
+        z[0] = v;
+        for (int i = 1; i < LIMBS; i++) {
+            z[i] = 0;
+        }
+    }
+
+    /**
+     * z = x + y (mod p)
+     * @param z result
+     * @param x first operand
+     * @param y second operand
+     */
+    static void add(long[] z, long[] x, long[] y) {
+        for (int i = 0; i < LIMBS; i++) {
+            z[i] = x[i] + y[i];
+        }
+        carry(z);
+    }
+
+    /**
+     * z = x - y (mod p)
+     * @param z result
+     * @param x first operand
+     * @param y second operand
+     */
+    static void sub(long[] z, long[] x, long[] y) {
+        for (int i = 0; i < LIMBS; i++) {
+            z[i] = x[i] + P4[i] - y[i];
+        }
+        carry(z);
+    }
+
+    /**
+     * z = -x (mod p)
+     * @param z result
+     * @param x operand
+     */
+    static void neg(long[] z, long[] x) {
+        for (int i = 0; i < LIMBS; i++) {
+            z[i] = P4[i] - x[i];
+        }
+        carry(z);
+    }
+
+    /**
+     * z = x * c (mod p) for a small constant c.
+     * @param z result
+     * @param x operand
+     * @param c constant, 0 <= c < 2^31
+     */
+    static void mulSmall(long[] z, long[] x, long c) {
+        long high = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long lo = x[i] * c;
+            long hi = Math.multiplyHigh(x[i], c);
+            z[i] = (lo & M) + high;
+            high = (hi << 6) | (lo >>> 58);
+        }
+        z[0] += high << 1;
+        carry(z);
+    }
+
+    /**
+     * z = x * y (mod p)
+     * Each product of two limbs is split at bit 58 into a low part, which is added to the column of the product,
+     * and a high part, which is added to the next column. Columns of 2^522 and above are doubled and added to the
+     * matching low column. Each column then holds at most 35 parts of just over 58 bits, which fits in an unsigned
+     * long, before the carries are propagated.
+     * @param z result
+     * @param x first operand
+     * @param y second operand
+     */
+    static void mul(long[] z, long[] x, long[] y) {
+        long x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3], x4 = x[4], x5 = x[5], x6 = x[6], x7 = x[7], x8 = x[8];
+        long y0 = y[0], y1 = y[1], y2 = y[2], y3 = y[3], y4 = y[4], y5 = y[5], y6 = y[6], y7 = y[7], y8 = y[8];
+        long z0 = 0, z1 = 0, z2 = 0, z3 = 0, z4 = 0, z5 = 0, z6 = 0, z7 = 0, z8 = 0;
+        long lo, hi;
+        lo = x0 * y0; hi = Math.multiplyHigh(x0, y0); z0 += lo & M; z1 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y1; hi = Math.multiplyHigh(x0, y1); z1 += lo & M; z2 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y2; hi = Math.multiplyHigh(x0, y2); z2 += lo & M; z3 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y3; hi = Math.multiplyHigh(x0, y3); z3 += lo & M; z4 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y4; hi = Math.multiplyHigh(x0, y4); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y5; hi = Math.multiplyHigh(x0, y5); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y6; hi = Math.multiplyHigh(x0, y6); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y7; hi = Math.multiplyHigh(x0, y7); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x0 * y8; hi = Math.multiplyHigh(x0, y8); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x1 * y0; hi = Math.multiplyHigh(x1, y0); z1 += lo & M; z2 += (hi << 6) | (lo >>> 58);
+        lo = x1 * y1; hi = Math.multiplyHigh(x1, y1); z2 += lo & M; z3 += (hi << 6) | (lo >>> 58);
+        lo = x1 * y2; hi = Math.multiplyHigh(x1, y2); z3 += lo & M; z4 += (hi << 6) | (lo >>> 58);
+        lo = x1 * y3; hi = Math.multiplyHigh(x1, y3); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = x1 * y4; hi = Math.multiplyHigh(x1, y4); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = x1 * y5; hi = Math.multiplyHigh(x1, y5); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = x1 * y6; hi = Math.multiplyHigh(x1, y6); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x1 * y7; hi = Math.multiplyHigh(x1, y7); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x1 * y8; hi = Math.multiplyHigh(x1, y8); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x2 * y0; hi = Math.multiplyHigh(x2, y0); z2 += lo & M; z3 += (hi << 6) | (lo >>> 58);
+        lo = x2 * y1; hi = Math.multiplyHigh(x2, y1); z3 += lo & M; z4 += (hi << 6) | (lo >>> 58);
+        lo = x2 * y2; hi = Math.multiplyHigh(x2, y2); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = x2 * y3; hi = Math.multiplyHigh(x2, y3); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = x2 * y4; hi = Math.multiplyHigh(x2, y4); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = x2 * y5; hi = Math.multiplyHigh(x2, y5); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x2 * y6; hi = Math.multiplyHigh(x2, y6); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x2 * y7; hi = Math.multiplyHigh(x2, y7); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x2 * y8; hi = Math.multiplyHigh(x2, y8); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x3 * y0; hi = Math.multiplyHigh(x3, y0); z3 += lo & M; z4 += (hi << 6) | (lo >>> 58);
+        lo = x3 * y1; hi = Math.multiplyHigh(x3, y1); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = x3 * y2; hi = Math.multiplyHigh(x3, y2); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = x3 * y3; hi = Math.multiplyHigh(x3, y3); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = x3 * y4; hi = Math.multiplyHigh(x3, y4); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x3 * y5; hi = Math.multiplyHigh(x3, y5); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x3 * y6; hi = Math.multiplyHigh(x3, y6); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x3 * y7; hi = Math.multiplyHigh(x3, y7); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x3 * y8; hi = Math.multiplyHigh(x3, y8); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x4 * y0; hi = Math.multiplyHigh(x4, y0); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = x4 * y1; hi = Math.multiplyHigh(x4, y1); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = x4 * y2; hi = Math.multiplyHigh(x4, y2); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = x4 * y3; hi = Math.multiplyHigh(x4, y3); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x4 * y4; hi = Math.multiplyHigh(x4, y4); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x4 * y5; hi = Math.multiplyHigh(x4, y5); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x4 * y6; hi = Math.multiplyHigh(x4, y6); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x4 * y7; hi = Math.multiplyHigh(x4, y7); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x4 * y8; hi = Math.multiplyHigh(x4, y8); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x5 * y0; hi = Math.multiplyHigh(x5, y0); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = x5 * y1; hi = Math.multiplyHigh(x5, y1); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = x5 * y2; hi = Math.multiplyHigh(x5, y2); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x5 * y3; hi = Math.multiplyHigh(x5, y3); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x5 * y4; hi = Math.multiplyHigh(x5, y4); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x5 * y5; hi = Math.multiplyHigh(x5, y5); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x5 * y6; hi = Math.multiplyHigh(x5, y6); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x5 * y7; hi = Math.multiplyHigh(x5, y7); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x5 * y8; hi = Math.multiplyHigh(x5, y8); z4 += (lo & M) << 1; z5 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * y0; hi = Math.multiplyHigh(x6, y0); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = x6 * y1; hi = Math.multiplyHigh(x6, y1); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x6 * y2; hi = Math.multiplyHigh(x6, y2); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * y3; hi = Math.multiplyHigh(x6, y3); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * y4; hi = Math.multiplyHigh(x6, y4); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * y5; hi = Math.multiplyHigh(x6, y5); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * y6; hi = Math.multiplyHigh(x6, y6); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * y7; hi = Math.multiplyHigh(x6, y7); z4 += (lo & M) << 1; z5 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * y8; hi = Math.multiplyHigh(x6, y8); z5 += (lo & M) << 1; z6 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y0; hi = Math.multiplyHigh(x7, y0); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = x7 * y1; hi = Math.multiplyHigh(x7, y1); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y2; hi = Math.multiplyHigh(x7, y2); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y3; hi = Math.multiplyHigh(x7, y3); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y4; hi = Math.multiplyHigh(x7, y4); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y5; hi = Math.multiplyHigh(x7, y5); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y6; hi = Math.multiplyHigh(x7, y6); z4 += (lo & M) << 1; z5 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y7; hi = Math.multiplyHigh(x7, y7); z5 += (lo & M) << 1; z6 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * y8; hi = Math.multiplyHigh(x7, y8); z6 += (lo & M) << 1; z7 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y0; hi = Math.multiplyHigh(x8, y0); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y1; hi = Math.multiplyHigh(x8, y1); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y2; hi = Math.multiplyHigh(x8, y2); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y3; hi = Math.multiplyHigh(x8, y3); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y4; hi = Math.multiplyHigh(x8, y4); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y5; hi = Math.multiplyHigh(x8, y5); z4 += (lo & M) << 1; z5 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y6; hi = Math.multiplyHigh(x8, y6); z5 += (lo & M) << 1; z6 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y7; hi = Math.multiplyHigh(x8, y7); z6 += (lo & M) << 1; z7 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * y8; hi = Math.multiplyHigh(x8, y8); z7 += (lo & M) << 1; z8 += ((hi << 6) | (lo >>> 58)) << 1;
+        z1 += z0 >>> 58; z0 &= M;
+        z2 += z1 >>> 58; z1 &= M;
+        z3 += z2 >>> 58; z2 &= M;
+        z4 += z3 >>> 58; z3 &= M;
+        z5 += z4 >>> 58; z4 &= M;
+        z6 += z5 >>> 58; z5 &= M;
+        z7 += z6 >>> 58; z6 &= M;
+        z8 += z7 >>> 58; z7 &= M;
+        z0 += (z8 >>> 58) << 1; z8 &= M;
+        z1 += z0 >>> 58; z0 &= M;
+        z[0] = z0; z[1] = z1; z[2] = z2; z[3] = z3; z[4] = z4; z[5] = z5; z[6] = z6; z[7] = z7; z[8] = z8;
+    }
+
+    /**
+     * z = x^2 (mod p)
+     * Same as mul, except each cross term is only computed once using a doubled limb.
+     * @param z result
+     * @param x operand
+     */
+    static void sqr(long[] z, long[] x) {
+        long x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3], x4 = x[4], x5 = x[5], x6 = x[6], x7 = x[7], x8 = x[8];
+        long d0 = x0 << 1, d1 = x1 << 1, d2 = x2 << 1, d3 = x3 << 1;
+        long d4 = x4 << 1, d5 = x5 << 1, d6 = x6 << 1, d7 = x7 << 1;
+        long z0 = 0, z1 = 0, z2 = 0, z3 = 0, z4 = 0, z5 = 0, z6 = 0, z7 = 0, z8 = 0;
+        long lo, hi;
+        lo = x0 * x0; hi = Math.multiplyHigh(x0, x0); z0 += lo & M; z1 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x1; hi = Math.multiplyHigh(d0, x1); z1 += lo & M; z2 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x2; hi = Math.multiplyHigh(d0, x2); z2 += lo & M; z3 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x3; hi = Math.multiplyHigh(d0, x3); z3 += lo & M; z4 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x4; hi = Math.multiplyHigh(d0, x4); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x5; hi = Math.multiplyHigh(d0, x5); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x6; hi = Math.multiplyHigh(d0, x6); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x7; hi = Math.multiplyHigh(d0, x7); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = d0 * x8; hi = Math.multiplyHigh(d0, x8); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x1 * x1; hi = Math.multiplyHigh(x1, x1); z2 += lo & M; z3 += (hi << 6) | (lo >>> 58);
+        lo = d1 * x2; hi = Math.multiplyHigh(d1, x2); z3 += lo & M; z4 += (hi << 6) | (lo >>> 58);
+        lo = d1 * x3; hi = Math.multiplyHigh(d1, x3); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = d1 * x4; hi = Math.multiplyHigh(d1, x4); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = d1 * x5; hi = Math.multiplyHigh(d1, x5); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = d1 * x6; hi = Math.multiplyHigh(d1, x6); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = d1 * x7; hi = Math.multiplyHigh(d1, x7); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d1 * x8; hi = Math.multiplyHigh(d1, x8); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x2 * x2; hi = Math.multiplyHigh(x2, x2); z4 += lo & M; z5 += (hi << 6) | (lo >>> 58);
+        lo = d2 * x3; hi = Math.multiplyHigh(d2, x3); z5 += lo & M; z6 += (hi << 6) | (lo >>> 58);
+        lo = d2 * x4; hi = Math.multiplyHigh(d2, x4); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = d2 * x5; hi = Math.multiplyHigh(d2, x5); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = d2 * x6; hi = Math.multiplyHigh(d2, x6); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d2 * x7; hi = Math.multiplyHigh(d2, x7); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d2 * x8; hi = Math.multiplyHigh(d2, x8); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x3 * x3; hi = Math.multiplyHigh(x3, x3); z6 += lo & M; z7 += (hi << 6) | (lo >>> 58);
+        lo = d3 * x4; hi = Math.multiplyHigh(d3, x4); z7 += lo & M; z8 += (hi << 6) | (lo >>> 58);
+        lo = d3 * x5; hi = Math.multiplyHigh(d3, x5); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d3 * x6; hi = Math.multiplyHigh(d3, x6); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d3 * x7; hi = Math.multiplyHigh(d3, x7); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d3 * x8; hi = Math.multiplyHigh(d3, x8); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x4 * x4; hi = Math.multiplyHigh(x4, x4); z8 += lo & M; z0 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d4 * x5; hi = Math.multiplyHigh(d4, x5); z0 += (lo & M) << 1; z1 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d4 * x6; hi = Math.multiplyHigh(d4, x6); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d4 * x7; hi = Math.multiplyHigh(d4, x7); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d4 * x8; hi = Math.multiplyHigh(d4, x8); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x5 * x5; hi = Math.multiplyHigh(x5, x5); z1 += (lo & M) << 1; z2 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d5 * x6; hi = Math.multiplyHigh(d5, x6); z2 += (lo & M) << 1; z3 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d5 * x7; hi = Math.multiplyHigh(d5, x7); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d5 * x8; hi = Math.multiplyHigh(d5, x8); z4 += (lo & M) << 1; z5 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x6 * x6; hi = Math.multiplyHigh(x6, x6); z3 += (lo & M) << 1; z4 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d6 * x7; hi = Math.multiplyHigh(d6, x7); z4 += (lo & M) << 1; z5 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d6 * x8; hi = Math.multiplyHigh(d6, x8); z5 += (lo & M) << 1; z6 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x7 * x7; hi = Math.multiplyHigh(x7, x7); z5 += (lo & M) << 1; z6 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = d7 * x8; hi = Math.multiplyHigh(d7, x8); z6 += (lo & M) << 1; z7 += ((hi << 6) | (lo >>> 58)) << 1;
+        lo = x8 * x8; hi = Math.multiplyHigh(x8, x8); z7 += (lo & M) << 1; z8 += ((hi << 6) | (lo >>> 58)) << 1;
+        z1 += z0 >>> 58; z0 &= M;
+        z2 += z1 >>> 58; z1 &= M;
+        z3 += z2 >>> 58; z2 &= M;
+        z4 += z3 >>> 58; z3 &= M;
+        z5 += z4 >>> 58; z4 &= M;
+        z6 += z5 >>> 58; z5 &= M;
+        z7 += z6 >>> 58; z6 &= M;
+        z8 += z7 >>> 58; z7 &= M;
+        z0 += (z8 >>> 58) << 1; z8 &= M;
+        z1 += z0 >>> 58; z0 &= M;
+        z[0] = z0; z[1] = z1; z[2] = z2; z[3] = z3; z[4] = z4; z[5] = z5; z[6] = z6; z[7] = z7; z[8] = z8;
+    }
+
+    /**
+     * z = x^(2^n) (mod p), squaring n times.
+     * @param z result
+     * @param x operand
+     * @param n number of squarings, at least 1
+     */
+    static void sqr(long[] z, long[] x, int n) {
+        sqr(z, x);
+        for (int i = 1; i < n; i++) {
+            sqr(z, z);
+        }
+    }
+
+    /**
+     * z = 1 / x (mod p), computed as x^(p - 2) by Fermat's little theorem.
+     * p - 2 = 2^521 - 3 = 4 * (2^519 - 1) + 1, so this is x^(2^519 - 1) from pow519 followed by two squarings and a
+     * multiplication by x.
+     * Costs 524 squarings and 13 multiplications. The inverse of 0 is 0.
+     * @param z result
+     * @param x operand
+     */
+    static void invert(long[] z, long[] x) {
+        long[] t = new long[LIMBS];
+        pow519(t, x);
+        sqr(t, t, 2);
+        mul(z, t, x);                   // 2^521 - 3
+    }
+
+    /**
+     * z[i] = 1 / x[i] (mod p) for every i with a single inversion, using Montgomery's simultaneous inversion: the
+     * elements are multiplied together, the product is inverted once, and each inverse is recovered with two more
+     * multiplications. None of the x[i] may be 0 mod p. z may be the same array as x.
+     * @param z results
+     * @param x operands
+     */
+    static void invert(long[][] z, long[][] x) {
+        int n = x.length;
+        if (n == 0) {
+            return;
+        }
+        //prefix[i] = x_0 * x_1 * ... * x_i
+        long[][] prefix = new long[n][LIMBS];
+        copy(prefix[0], x[0]);
+        for (int i = 1; i < n; i++) {
+            mul(prefix[i], prefix[i - 1], x[i]);
+        }
+        long[] inv = new long[LIMBS];
+        long[] t = new long[LIMBS];
+        invert(inv, prefix[n - 1]);
+        for (int i = n - 1; i > 0; i--) {
+            mul(t, inv, prefix[i - 1]);
+            mul(inv, inv, x[i]);
+            copy(z[i], t);
+        }
+        copy(z[0], inv);
+    }
+
+    /**
+     * Computes a square root of u / v (mod p) without computing 1 / v, if there is one.
+     * As p = 3 (mod 4), a square root of a is a^((p + 1) / 4), and for a = u / v this is
+     * u^3 * v * (u^5 * v^3)^((p - 3) / 4) where (p - 3) / 4 = 2^519 - 1, the same power used by invert.
+     * Costs 521 squarings and 17 multiplications.
+     * @param z result, a square root of u / v if there is one
+     * @param u numerator
+     * @param v denominator, not 0 mod p
+     * @return true if u / v is a square and z holds its root, false otherwise
+     */
+    static boolean sqrtRatio(long[] z, long[] u, long[] v) {
+        long[] u2 = new long[LIMBS];
+        long[] u3v = new long[LIMBS];
+        long[] t = new long[LIMBS];
+        sqr(u2, u);
+        mul(u3v, u2, u);
+        mul(u3v, u3v, v);               // u^3 v
+        sqr(t, v);
+        mul(t, t, u2);
+        mul(t, t, u3v);                 // u^5 v^3
+        pow519(t, t);
+        mul(z, u3v, t);
+        //The root is correct exactly when v * z^2 = u.
+        sqr(t, z);
+        mul(t, t, v);
+        return equal(t, u);
+    }
+
+    /**
+     * Computes a square root of x (mod p), if there is one. As p = 3 (mod 4) this is x^((p + 1) / 4) = x^(2^519),
+     * which is 519 squarings and nothing else.
+     * @param z result, a square root of x if there is one
+     * @param x operand
+     * @return true if x is a square and z holds its root, false otherwise
+     */
+    static boolean sqrt(long[] z, long[] x) {
+        long[] t = new long[LIMBS];
+        sqr(t, x, 519);
+        copy(z, t);
+        sqr(t, t);
+        return equal(t, x);
+    }
+
+    /**
+     * z = x^(2^519 - 1) (mod p), which is x^((p - 3) / 4), with an addition chain that builds x^(2^k - 1) for
+     * k = 2, 3, 4, 7, 8, 16, ..., 512 and then k = 519.
+     * Costs 519 squarings and 12 multiplications.
+     * @param z result
+     * @param x operand
+     */
+    private static void pow519(long[] z, long[] x) {
+        long[] a = new long[LIMBS];
+        long[] t = new long[LIMBS];
+        long[] x3 = new long[LIMBS];
+        long[] x7 = new long[LIMBS];
+        sqr(t, x);
+        mul(a, t, x);                   // 2^2 - 1
+        sqr(t, a);
+        mul(x3, t, x);                  // 2^3 - 1
+        sqr(t, a, 2);
+        mul(a, t, a);                   // 2^4 - 1
+        sqr(t, a, 3);
+        mul(x7, t, x3);                 // 2^7 - 1
+        sqr(t, a, 4);
+        mul(a, t, a);                   // 2^8 - 1
+        sqr(t, a, 8);
+        mul(a, t, a);                   // 2^16 - 1
+        sqr(t, a, 16);
+        mul(a, t, a);                   // 2^32 - 1
+        sqr(t, a, 32);
+        mul(a, t, a);                   // 2^64 - 1
+        sqr(t, a, 64);
+        mul(a, t, a);                   // 2^128 - 1
+        sqr(t, a, 128);
+        mul(a, t, a);                   // 2^256 - 1
+        sqr(t, a, 256);
+        mul(a, t, a);                   // 2^512 - 1
+        sqr(t, a, 7);
+        mul(z, t, x7);                  // 2^519 - 1
+    }
+
+    /**
+     * Fully reduces x in place so that it is the canonical value in the range [0, p).
+     * @param x field element
+     */
+    static void normalize(long[] x) {
+        carry(x);
+        //Fold bit 521 and above back in, since 2^521 = 1 (mod p), twice in case the first fold carries all the way.
+        for (int r = 0; r < 2; r++) {
+            long c = x[8] >>> 57;
+            x[8] &= M >>> 1;
+            x[0] += c;
+            for (int i = 0; i < LIMBS - 1; i++) {
+                x[i + 1] += x[i] >>> 58;
+                x[i] &= M;
+            }
+        }
+        //x is now less than 2^521, the only value left to reduce is p itself. Cleared with a mask rather than a
+        //branch so that the time taken does not depend on the value.
+        long diff = x[8] ^ (M >>> 1);
+        for (int i = 0; i < LIMBS - 1; i++) {
+            diff |= x[i] ^ M;
+        }
+        long keep = (diff | -diff) >> 63;
+        for (int i = 0; i < LIMBS; i++) {
+            x[i] &= keep;
+        }
+    }
+
+    /**
+     * Copies x into z if mask is all ones and leaves z unchanged if it is 0, without branching.
+     * @param z destination
+     * @param x source
+     * @param mask -1 to copy, 0 to keep
+     */
+    static void cmov(long[] z, long[] x, long mask) {
+        for (int i = 0; i < LIMBS; i++) {
+            z[i] ^= (z[i] ^ x[i]) & mask;
+        }
+    }
+
+    /**
+     * Swaps x and y if mask is all ones and leaves them unchanged if it is 0, without branching, so that the time
+     * taken does not depend on which was chosen.
+     * @param x first field element
+     * @param y second field element
+     * @param mask -1 to swap, 0 to keep
+     */
+    static void cswap(long[] x, long[] y, long mask) {
+        for (int i = 0; i < LIMBS; i++) {
+            long t = (x[i] ^ y[i]) & mask;
+            x[i] ^= t;
+            y[i] ^= t;
+        }
+    }
+
+    /**
+     * Returns if two field elements have the same value mod p. Neither input is modified.
+     * @param x first operand
+     * @param y second operand
+     * @return true if x = y (mod p)
+     */
+    static boolean equal(long[] x, long[] y) {
+        long[] t = new long[LIMBS];
+        sub(t, x, y);
+        return isZero(t);
+    }
+
+    /**
+     * Returns if the field element is 0 mod p. x is not modified.
+     * @param x field element
+     * @return true if x = 0 (mod p)
+     */
+    static boolean isZero(long[] x) {
+        long[] t = x.clone();
+        normalize(t);
+        long r = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            r |= t[i];
+        }
+        return r == 0;
+    }
+
+    /**
+     * Propagates carries so that every limb is less than 2^58 + 2, folding the carry out of the top limb back into
+     * the bottom limb as 2^522 = 2 (mod p). Limbs must be non-negative and less than 2^64 as unsigned values.
+     * @param z field element
+     */
+    private static void carry(long[] z) {
+        for (int i = 0; i < LIMBS - 1; i++) {
+            z[i + 1] += z[i] >>> 58;
+            z[i] &= M;
+        }
+        z[0] += (z[8] >>> 58) << 1;
+        z[8] &= M;
+        z[1] += z[0] >>> 58;
+        z[0] &= M;
+    }
+}
@@ -0,0 +1,154 @@
+package Model;
+
+import java.math.BigInteger;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/18/2021
+ */
+
+/**
+ * Multiplies a fixed base point by scalars using a precomputed table, so that no doublings are needed at all.
+ * The scalar is reduced mod r and written in signed radix 16 as the sum of e_i * 16^i with digits -8 <= e_i <= 8.
+ * Row i of the table holds j * 16^i * base for j = 1, ..., 8 and negative digits use the negated entry, so a
+ * multiplication is one table addition per non-zero digit, at most 131.
+ * The table takes about 300 KB and a few milliseconds to build. Once built it is only read from, so a single table
+ * can be shared by any number of threads.
+ */
+final class E521FixedBase {
+
+    /**
+     * Number of bits per digit.
+     */
+    private static final int W = 4;
+
+    /**
+     * Number of signed digits needed for a scalar less than r, including the final carry.
+     */
+    private static final int DIGITS = (E521CurvePoint.r.bitLength() + W - 1) / W + 1;
+
+    /**
+     * Largest absolute value of a digit and number of entries in each row.
+     */
+    private static final int HALF = 1 << (W - 1);
+
+    /**
+     * table[i][j] = (j + 1) * 16^i * base.
+     */
+    private final E521ExtendedPoint[][] table = new E521ExtendedPoint[DIGITS][HALF];
+
+    /**
+     * Builds the table for a base point. The base point must have order r, as the scalars are reduced mod r.
+     * @param base base point
+     */
+    E521FixedBase(E521CurvePoint base) {
+        E521ExtendedPoint row = new E521ExtendedPoint(base);
+        E521ExtendedPoint acc = new E521ExtendedPoint();
+        for (int i = 0; i < DIGITS; i++) {
+            acc.set(row);
+            table[i][0] = new E521ExtendedPoint(acc);
+            for (int j = 1; j < HALF; j++) {
+                acc.add(row);
+                table[i][j] = new E521ExtendedPoint(acc);
+            }
+            for (int k = 0; k < W; k++) {
+                row.dbl();
+            }
+        }
+    }
+
+    /**
+     * Returns the table for the generator g, building it the first time it is needed.
+     * @return fixed base table for E521CurvePoint.g
+     */
+    static E521FixedBase generator() {
+        return Generator.TABLE;
+    }
+
+    /**
+     * Multiplies the base point by a scalar.
+     * @param s scalar value to multiply by
+     * @return curve point after scalar multiplication
+     */
+    E521CurvePoint multiply(BigInteger s) {
+        E521ExtendedPoint v = new E521ExtendedPoint();
+        multiplyAdd(v, s);
+        return v.toAffine();
+    }
+
+    /**
+     * Adds a multiple of the base point to v. Since no doublings are involved this can be used to add the fixed
+     * base part of a sum of multiples to a point computed some other way.
+     * @param v point to add to
+     * @param s scalar value to multiply the base point by
+     */
+    void multiplyAdd(E521ExtendedPoint v, BigInteger s) {
+        int[] e = recode(s.mod(E521CurvePoint.r));
+        for (int i = 0; i < DIGITS; i++) {
+            if (e[i] > 0) {
+                v.add(table[i][e[i] - 1]);
+            } else if (e[i] < 0) {
+                v.sub(table[i][-e[i] - 1]);
+            }
+        }
+    }
+
+    /**
+     * Multiplies the base point by a secret scalar in constant time. Every row of the table adds exactly one entry,
+     * which is found by reading all entries of the row and keeping the wanted one with a mask, then negated with a
+     * mask for negative digits. A zero digit keeps none of them and adds the neutral element. So the same additions
+     * are done and the same memory is read whatever the scalar is, at the cost of always doing all DIGITS additions.
+     * @param s scalar value to multiply by
+     * @return curve point after scalar multiplication
+     */
+    E521CurvePoint multiplySecret(BigInteger s) {
+        int[] e = recode(s.mod(E521CurvePoint.r));
+        E521ExtendedPoint v = new E521ExtendedPoint();
+        E521ExtendedPoint entry = new E521ExtendedPoint();
+        for (int i = 0; i < DIGITS; i++) {
+            long sign = e[i] >> 31;
+            long abs = (e[i] ^ sign) - sign;
+            entry.setNeutral();
+            for (int j = 0; j < HALF; j++) {
+                long diff = abs ^ (j + 1);
+                entry.cmov(table[i][j], ~((diff | -diff) >> 63));
+            }
+            entry.cnegate(sign);
+            v.add(entry);
+        }
+        return v.toAffine();
+    }
+
+    /**
+     * Writes a non-negative scalar less than r in signed radix 16, least significant digit first.
+     * @param s scalar
+     * @return DIGITS digits, each between -8 and 8
+     */
+    private static int[] recode(BigInteger s) {
+        int[] e = new int[DIGITS];
+        byte[] b = s.toByteArray();
+        int carry = 0;
+        for (int i = 0; i < DIGITS - 1; i++) {
+            int idx = b.length - 1 - i / 2;
+            int nibble = idx < 0 ? 0 : (b[idx] >>> (4 * (i % 2))) & 0xF;
+            int v = nibble + carry;
+            carry = (v + HALF - 1) >>> W;
+            e[i] = v - (carry << W);
+        }
+        e[DIGITS - 1] = carry;
+        return e;
+    }
+
+    /**
+     * Holds the table for g so that it is built lazily, exactly once, the first time it is used.
+     */
+    private static final class Generator {
+
+        /**
+         * Fixed base table for E521CurvePoint.g.
+         */
+        private static final E521FixedBase TABLE = new E521FixedBase(E521CurvePoint.g);
+    }
+}
@@ -0,0 +1,82 @@
+package Model;
+
+import java.math.BigInteger;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Multiplies a point by a secret scalar with the Montgomery ladder, taking the same time whatever the scalar is.
+ * The scalar is reduced mod n = 4r, the order of the whole curve group, so the result is the same as
+ * E521CurvePoint.scalarMultiply for every curve point, not only those of order r. It is then held as nine 64 bit
+ * words and the ladder always runs over all 521 bits of n, keeping R1 - R0 = P:
+ * for each bit b, swap R0 and R1 if b is set, R1 = R0 + R1, R0 = 2 * R0, and swap back.
+ * Every step does one addition and one doubling on fixed size E521Field limbs and the swaps are done with masks,
+ * so there are no branches or table lookups that depend on the scalar and the number of steps never changes.
+ * This is about twice the work of the window methods, so it is only used where the scalar must stay secret.
+ */
+final class E521Ladder {
+
+    /**
+     * Order of the curve group, 4r.
+     */
+    private static final BigInteger N = E521CurvePoint.r.shiftLeft(2);
+
+    /**
+     * Number of ladder steps, the bit length of n.
+     */
+    static final int BITS = N.bitLength();
+
+    /**
+     * Number of 64 bit words holding a scalar less than n.
+     */
+    static final int WORDS = (BITS + 63) / 64;
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private E521Ladder() {
+    }
+
+    /**
+     * Multiplies a point by a scalar in constant time.
+     * @param p point to multiply
+     * @param s scalar value to multiply by
+     * @return curve point after scalar multiplication
+     */
+    static E521CurvePoint multiply(E521CurvePoint p, BigInteger s) {
+        long[] k = words(s);
+        E521ExtendedPoint r0 = new E521ExtendedPoint();
+        E521ExtendedPoint r1 = new E521ExtendedPoint(p);
+        long swapped = 0;
+        for (int i = BITS - 1; i >= 0; i--) {
+            long bit = -((k[i >>> 6] >>> (i & 63)) & 1);
+            //Swapping again is only needed when this bit differs from the last one, so the two swaps of
+            //consecutive steps are merged into one.
+            r0.cswap(r1, bit ^ swapped);
+            swapped = bit;
+            r1.add(r0);
+            r0.dbl();
+        }
+        r0.cswap(r1, swapped);
+        return r0.toAffine();
+    }
+
+    /**
+     * Writes a scalar reduced mod n as WORDS words of 64 bits, least significant word first.
+     * @param s scalar, may be negative or larger than n
+     * @return the words of s mod n
+     */
+    static long[] words(BigInteger s) {
+        BigInteger v = s.mod(N);
+        long[] k = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            k[i] = v.shiftRight(64 * i).longValue();
+        }
+        return k;
+    }
+}
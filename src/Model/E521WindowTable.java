@@ -0,0 +1,217 @@
+package Model;
+
+import java.math.BigInteger;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/18/2021
+ */
+
+/**
+ * Multiplies a variable base point by scalars using a width-w non-adjacent form (wNAF).
+ * The scalar is written as the sum of e_i * 2^i where every non-zero digit e_i is odd with |e_i| < 2^(w-1) and
+ * any w consecutive digits contain at most one non-zero digit. With a small table of the odd multiples
+ * P, 3P, ..., (2^(w-1) - 1)P the multiplication needs one doubling per bit but only one addition per non-zero
+ * digit, about bits / (w + 1) instead of bits / 2 for double-and-add. Negative digits subtract the table entry,
+ * since negating an Edwards point is nearly free.
+ * Once built the table is only read from, so it can be kept and reused for any number of multiplications of
+ * the same point.
+ * The same table also serves multiplySecret, which uses fixed windows of w - 1 bits where every digit is odd and
+ * non-zero, so each window is always one lookup and one addition and the scalar only decides which entry is read.
+ */
+final class E521WindowTable {
+
+    /**
+     * Window width.
+     */
+    static final int W = 5;
+
+    /**
+     * odd[j] = (2j + 1) * base.
+     */
+    private final E521ExtendedPoint[] odd = new E521ExtendedPoint[1 << (W - 2)];
+
+    /**
+     * Number of odd digits multiplySecret writes a scalar less than n + 1 as, in windows of w - 1 bits.
+     */
+    private static final int DIGITS = (E521Ladder.BITS + W - 2) / (W - 1) + 1;
+
+    /**
+     * Builds the table of odd multiples for a base point. Costs one doubling and 2^(w-2) - 1 additions.
+     * @param base base point
+     */
+    E521WindowTable(E521CurvePoint base) {
+        E521ExtendedPoint twice = new E521ExtendedPoint(base);
+        twice.dbl();
+        E521ExtendedPoint acc = new E521ExtendedPoint(base);
+        odd[0] = new E521ExtendedPoint(acc);
+        for (int j = 1; j < odd.length; j++) {
+            acc.add(twice);
+            odd[j] = new E521ExtendedPoint(acc);
+        }
+    }
+
+    /**
+     * Multiplies the base point by a scalar.
+     * @param s scalar value to multiply by, may be negative
+     * @return curve point after scalar multiplication
+     */
+    E521CurvePoint multiply(BigInteger s) {
+        return multiply(new E521WindowTable[] {this}, new BigInteger[] {s}).toAffine();
+    }
+
+    /**
+     * Multiplies the base point by a secret scalar, giving the same result as multiply but taking the same time
+     * whatever the scalar is. The scalar is reduced mod n = 4r like the ladder of E521Ladder, and an even scalar k
+     * is multiplied as k + 1 with the base subtracted again at the end, so the scalar is always odd. An odd scalar
+     * is written as DIGITS odd digits between -(2^(w-1) - 1) and 2^(w-1) - 1, one per w - 1 bits, and each digit
+     * costs w - 1 doublings, a read of every table entry with masks, a masked negation and one addition.
+     * That is about 4 doublings and 1 addition per 4 bits, against 4 of each for the ladder.
+     * @param s scalar value to multiply by, may be negative
+     * @return curve point after scalar multiplication
+     */
+    E521CurvePoint multiplySecret(BigInteger s) {
+        long[] k = E521Ladder.words(s);
+        long even = (k[0] & 1) - 1;
+        k[0] |= 1;
+        int[] e = recodeOdd(k);
+        E521ExtendedPoint v = new E521ExtendedPoint();
+        select(v, e[DIGITS - 1]);
+        E521ExtendedPoint entry = new E521ExtendedPoint();
+        for (int i = DIGITS - 2; i >= 0; i--) {
+            for (int j = 0; j < W - 1; j++) {
+                v.dbl();
+            }
+            select(entry, e[i]);
+            v.add(entry);
+        }
+        //Undo the + 1 of an even scalar.
+        entry.set(v);
+        entry.sub(odd[0]);
+        v.cmov(entry, even);
+        return v.toAffine();
+    }
+
+    /**
+     * Sets entry to digit * base, reading every table entry so the digit cannot be told from the memory accessed.
+     * @param entry point to set
+     * @param digit odd digit with |digit| < 2^(w-1)
+     */
+    private void select(E521ExtendedPoint entry, int digit) {
+        long sign = digit >> 31;
+        long idx = ((digit ^ sign) - sign) >> 1;
+        for (int j = 0; j < odd.length; j++) {
+            long diff = idx ^ j;
+            entry.cmov(odd[j], ~((diff | -diff) >> 63));
+        }
+        entry.cnegate(sign);
+    }
+
+    /**
+     * Writes an odd scalar as DIGITS odd digits d_i with k = sum of d_i * 2^((w-1)i), least significant digit
+     * first. Each step takes d = (k mod 2^w) - 2^(w-1), which is odd since k is, and continues with
+     * (k - d) / 2^(w-1), which is odd again. Here k is the remaining bits plus a carry of 0 or 1, so every step is
+     * the same few operations on ints.
+     * @param k odd scalar as E521Ladder.WORDS words, least significant word first
+     * @return DIGITS odd digits, the last being 1
+     */
+    private static int[] recodeOdd(long[] k) {
+        int[] e = new int[DIGITS];
+        int carry = 0;
+        for (int i = 0; i < DIGITS - 1; i++) {
+            int pos = (W - 1) * i;
+            long bits = k[pos >>> 6] >>> (pos & 63);
+            if ((pos & 63) > 64 - W && (pos >>> 6) + 1 < k.length) {
+                bits |= k[(pos >>> 6) + 1] << (64 - (pos & 63));
+            }
+            int low = (int) bits & ((1 << W) - 1);
+            int d = ((low + carry) & ((1 << W) - 1)) - (1 << (W - 1));
+            carry = ((low & ((1 << (W - 1)) - 1)) + carry - d) >> (W - 1);
+            e[i] = d;
+        }
+        e[DIGITS - 1] = carry;
+        return e;
+    }
+
+    /**
+     * Computes the sum of scalars[i] * base of tables[i] using Straus' interleaving: the wNAF digits of all
+     * scalars are processed together from the top, so the doublings are shared and only the additions grow with
+     * the number of points.
+     * @param tables tables of the base points
+     * @param scalars scalar for each base point, may be negative
+     * @return the sum, in extended coordinates
+     */
+    static E521ExtendedPoint multiply(E521WindowTable[] tables, BigInteger[] scalars) {
+        byte[][] nafs = new byte[scalars.length][];
+        int len = 0;
+        for (int j = 0; j < scalars.length; j++) {
+            nafs[j] = wnaf(scalars[j].abs(), W);
+            if (scalars[j].signum() < 0) {
+                for (int i = 0; i < nafs[j].length; i++) {
+                    nafs[j][i] = (byte) -nafs[j][i];
+                }
+            }
+            len = Math.max(len, nafs[j].length);
+        }
+        E521ExtendedPoint v = new E521ExtendedPoint();
+        for (int i = len - 1; i >= 0; i--) {
+            v.dbl();
+            for (int j = 0; j < tables.length; j++) {
+                if (i < nafs[j].length) {
+                    tables[j].addDigit(v, nafs[j][i]);
+                }
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Adds digit * base to v, where digit is 0 or an odd value with |digit| < 2^(w-1).
+     * @param v point to add to
+     * @param digit wNAF digit
+     */
+    void addDigit(E521ExtendedPoint v, int digit) {
+        if (digit > 0) {
+            v.add(odd[digit >> 1]);
+        } else if (digit < 0) {
+            v.sub(odd[-digit >> 1]);
+        }
+    }
+
+    /**
+     * Computes the width-w NAF of a non-negative scalar, least significant digit first. The result has no
+     * leading zero digits, so its length is at most the bit length of k plus one.
+     * @param k scalar, must be non-negative
+     * @param w window width, between 2 and 7
+     * @return wNAF digits
+     */
+    static byte[] wnaf(BigInteger k, int w) {
+        int len = k.bitLength();
+        byte[] naf = new byte[len + 1];
+        int carry = 0;
+        int top = 0;
+        int pos = 0;
+        while (pos <= len) {
+            if ((k.testBit(pos) ? 1 : 0) == carry) {
+                pos++;
+                continue;
+            }
+            //Take the next w bits plus the carry, which is odd, and make it a signed digit.
+            int word = carry;
+            for (int j = 0; j < w; j++) {
+                if (k.testBit(pos + j)) {
+                    word += 1 << j;
+                }
+            }
+            carry = word >>> (w - 1);
+            naf[pos] = (byte) (word - (carry << w));
+            top = pos;
+            pos += w;
+        }
+        byte[] out = new byte[top + 1];
+        System.arraycopy(naf, 0, out, 0, out.length);
+        return out;
+    }
+}
@@ -1,6 +1,13 @@
 package Model;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 /*
     TCSS 487
@@ -12,6 +19,8 @@ import java.nio.charset.StandardCharsets;
 
 /**
  * Computes the result of the KMACXOF256 function described in NIST.SP.800-185.
+ * Can be used either through the one-shot compute function or as a stateful object that absorbs data incrementally
+ * with update and produces output incrementally with squeeze.
  * Specifications for all functions used in this class either taken directly from the above publication or
  * derived from it.
  * Publication can be viewed at https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf
@@ -24,6 +33,148 @@ public class KMACXOF256 {
      */
     private static final byte[] kmac = "KMAC".getBytes(StandardCharsets.UTF_8);
 
+    /**
+     * Most customization strings whose prefix state is kept in prefixes.
+     */
+    private static final int PREFIXES = 64;
+
+    /**
+     * Sponge state after the cShake256 prefix for each customization string seen so far, up to PREFIXES of them.
+     * Customization strings are usually constants, so this saves one permutation in nearly every computation.
+     */
+    private static final Map<ByteBuffer, Keccak1600> prefixes = new ConcurrentHashMap<>();
+
+    /**
+     * Sponge that all key, customization string, and data bytes are absorbed into.
+     */
+    private final Keccak1600 sponge;
+
+    /**
+     * Denotes whether squeezing has begun. Once it has no more data may be absorbed.
+     */
+    private boolean squeezing = false;
+
+    /**
+     * Creates a KMACXOF256 instance with the key and customization string already absorbed. Data can then be
+     * absorbed in any number of calls to update before the output is read with squeeze, so that the whole
+     * input never needs to be held in memory at once.
+     * @param k The key as a byte[]
+     * @param s Optional customization string as a byte[]
+     */
+    public KMACXOF256(byte[] k, byte[] s) {
+        this(prefix(s), k);
+    }
+
+    /**
+     * Creates a KMACXOF256 instance from a sponge that already holds the cShake256 prefix for the customization
+     * string, absorbing the key.
+     * @param sponge sponge as returned by cShake256(kmac, s), which becomes owned by this instance
+     * @param k The key as a byte[]
+     */
+    private KMACXOF256(Keccak1600 sponge, byte[] k) {
+        this.sponge = sponge;
+        bytepad(sponge);
+        encodeString(sponge, k);
+        sponge.zeroPad();
+    }
+
+    /**
+     * Creates a copy of another KMACXOF256 instance.
+     * @param other instance to copy
+     */
+    private KMACXOF256(KMACXOF256 other) {
+        sponge = new Keccak1600(other.sponge);
+        squeezing = other.squeezing;
+    }
+
+    /**
+     * Returns an independent copy of this instance in its current state. Copying an instance that has only had its
+     * key absorbed gives a keyed KMACXOF256 that can be reused for any number of messages without absorbing the
+     * key again.
+     * @return copy of this instance
+     */
+    public KMACXOF256 copy() {
+        return new KMACXOF256(this);
+    }
+
+    /**
+     * Returns this instance to the state of another, such as one that has only had its key absorbed, without
+     * allocating. Reusing one instance this way for each message, with update and squeeze(byte[], int, int) into a
+     * preallocated array, computes tags without producing any garbage.
+     * @param other instance whose state is taken
+     */
+    public void set(KMACXOF256 other) {
+        sponge.set(other.sponge);
+        squeezing = other.squeezing;
+    }
+
+    /**
+     * Absorbs len bytes of data starting at off.
+     * @param x The data as a byte[]
+     * @param off offset of the first byte to absorb
+     * @param len number of bytes to absorb
+     * @throws IllegalStateException if squeeze has already been called
+     */
+    public void update(byte[] x, int off, int len) {
+        if (squeezing) throw new IllegalStateException("Cannot update KMACXOF256 after squeezing has begun.");
+        if (off < 0 || len < 0 || off + len > x.length || off + len < 0) {
+            throw new IndexOutOfBoundsException("off = " + off + ", len = " + len + ", x.length = " + x.length + ".");
+        }
+        sponge.sha3Update(x, off, len);
+    }
+
+    /**
+     * Absorbs all bytes of data in x.
+     * @param x The data as a byte[]
+     * @throws IllegalStateException if squeeze has already been called
+     */
+    public void update(byte[] x) {
+        update(x, 0, x.length);
+    }
+
+    /**
+     * Absorbs the remaining bytes of the buffer. The position of the buffer is advanced to its limit.
+     * @param x The data as a ByteBuffer
+     * @throws IllegalStateException if squeeze has already been called
+     */
+    public void update(ByteBuffer x) {
+        if (squeezing) throw new IllegalStateException("Cannot update KMACXOF256 after squeezing has begun.");
+        sponge.sha3Update(x);
+    }
+
+    /**
+     * Writes the next len bytes of output into out starting at off. The first call ends the absorbing of data.
+     * Since this is the XOF variant the output does not depend on how many bytes are requested in total, so the
+     * output may be read in any number of calls.
+     * @param out array to write the output to
+     * @param off offset of the first byte to write
+     * @param len number of bytes to write
+     */
+    public void squeeze(byte[] out, int off, int len) {
+        if (off < 0 || len < 0 || off + len > out.length || off + len < 0) {
+            throw new IndexOutOfBoundsException("off = " + off + ", len = " + len + ", out.length = " + out.length
+                    + ".");
+        }
+        if (!squeezing) {
+            rightEncode(sponge, 0);
+            //cShake256 domain separation bits 00 followed by the first bit of the padding.
+            sponge.sha3Xof((byte) 0x04);
+            squeezing = true;
+        }
+        sponge.sha3Squeeze(out, off, len);
+    }
+
+    /**
+     * Returns the next len bytes of output. See squeeze(byte[], int, int).
+     * @param len number of bytes to return
+     * @return a byte[] of the next len bytes of output
+     */
+    public byte[] squeeze(int len) {
+        byte[] out = new byte[len];
+        squeeze(out, 0, len);
+        return out;
+    }
+
     /**
      * Computes the result of calling the KMACXOF256 function as described in
      * https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf.
@@ -34,131 +185,152 @@ public class KMACXOF256 {
      * @return a byte[] of the result of calling the KMACXOF256 function
      */
     public static byte[] compute(byte[] k, byte[] x, int L, byte[] s) {
-        byte[] temp = bytepad(encodeString(k), 136);
-        byte[] newX = new byte[temp.length + x.length + 3];
-        byte[] right = rightEncode(0, 1);
-        System.arraycopy(temp, 0, newX, 0, temp.length);
-        System.arraycopy(x, 0, newX, temp.length, x.length);
-        newX[newX.length - 3] = right[0];
-        newX[newX.length - 2] = right[1];
-        newX[newX.length - 1] = 0x04;
-        return cShake256(newX, L, kmac, s);
+        if (L == 0) {
+            return new byte[0];
+        }
+        KMACXOF256 kmacxof = new KMACXOF256(k, s);
+        kmacxof.update(x);
+        return kmacxof.squeeze(L / 8);
     }
 
     /**
-     * Returns a number 'a' left encoded in an unambiguous way to be used with Sha3 derived functions.
-     * Specification for left encode taken from https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf
-     * @param a Number to be encoded
-     * @param n Minimum n such that 2^{8n} > a
-     * @return byte[] of encoded number
-     */
-    private static byte[] leftEncode(int a, int n) {
-        byte[] left = new byte[n + 1];
-        left[0] = (byte) n;
-        for(int i = n; i > 0; i--) {
-            left[i] = (byte) (a >>> ((n - i) * 8));
+     * Computes KMACXOF256(keys[i], xs[i], L, s) for every i, giving the same results as calling compute for each.
+     * This is a parallel map of compute over the common ForkJoinPool, except that keys with the same contents only
+     * have bytepad(encodeString(K), 136) absorbed once, and every computation with that key starts from a copy of
+     * the keyed state. Keys are matched by content, so equal keys held in different arrays are shared.
+     * @param keys The key for each computation
+     * @param xs The data for each computation
+     * @param L The length of the desired output as an int
+     * @param s Optional customization string as a byte[]
+     * @return the result of each computation, in the same order
+     * @throws IllegalArgumentException if there are not as many keys as data.
+     */
+    public static byte[][] computeBatch(byte[][] keys, byte[][] xs, int L, byte[] s) {
+        if (keys.length != xs.length) {
+            throw new IllegalArgumentException("Number of keys " + keys.length + " does not match number of data "
+                    + xs.length + ".");
         }
-        return left;
+        Map<ByteBuffer, Integer> slots = new HashMap<>();
+        List<KMACXOF256> keyed = new ArrayList<>();
+        int[] slot = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            byte[] k = keys[i];
+            slot[i] = slots.computeIfAbsent(ByteBuffer.wrap(k), key -> {
+                keyed.add(new KMACXOF256(k, s));
+                return keyed.size() - 1;
+            });
+        }
+        byte[][] out = new byte[xs.length][];
+        IntStream.range(0, xs.length).parallel().forEach(i -> {
+            if (L == 0) {
+                out[i] = new byte[0];
+                return;
+            }
+            KMACXOF256 kmacxof = keyed.get(slot[i]).copy();
+            kmacxof.update(xs[i]);
+            out[i] = kmacxof.squeeze(L / 8);
+        });
+        return out;
     }
 
     /**
-     * Returns a number 'a' right encoded in an unambiguous way to be used with Sha3 derived functions.
+     * Absorbs a number 'a' left encoded in an unambiguous way to be used with Sha3 derived functions, writing the
+     * bytes straight into the sponge.
      * Specification for left encode taken from https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf
-     * @param a Number to be encoded
-     * @param n Minimum n such that 2^{8n} > a
-     * @return byte[] of encoded number
-     */
-    private static byte[] rightEncode(int a, int n) {
-        byte[] right = new byte[n + 1];
-        right[n] = (byte) n;
-        for(int i = n - 1; i > - 1; i--) {
-            right[i] = (byte) (a >>> ((n - i - 1) * 8));
+     * @param sponge sponge to absorb the encoding into
+     * @param a Number to be encoded, must be greater than or equal to 0
+     */
+    static void leftEncode(Keccak1600 sponge, long a) {
+        int n = determineN(a);
+        sponge.absorbByte((byte) n);
+        for (int i = n - 1; i > -1; i--) {
+            sponge.absorbByte((byte) (a >>> (i * 8)));
         }
-        return right;
     }
 
     /**
-     * Determines a minimum n value such that 2^{8n} > a.
+     * Absorbs a number 'a' right encoded in an unambiguous way to be used with Sha3 derived functions, writing the
+     * bytes straight into the sponge.
+     * Specification for right encode taken from https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf
+     * @param sponge sponge to absorb the encoding into
+     * @param a Number to be encoded, must be greater than or equal to 0
+     */
+    static void rightEncode(Keccak1600 sponge, long a) {
+        int n = determineN(a);
+        for (int i = n - 1; i > -1; i--) {
+            sponge.absorbByte((byte) (a >>> (i * 8)));
+        }
+        sponge.absorbByte((byte) n);
+    }
+
+    /**
+     * Determines a minimum n value such that 2^{8n} > a, with n at least 1.
      * @param a Must be greater than or equal to 0.
      * @return int n
      */
-    private static int determineN(int a) {
+    static int determineN(long a) {
         if (a < 0) throw new IllegalArgumentException("a = " + a + ". Violation of a > -1 for determineN.");
-        int n = 1;
-        while (Math.pow(2, 8 * n) <= a) {
-            n++;
-        }
-        return n;
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(a) + 7) / 8);
     }
 
     /**
-     * Encodes a bit string as specified in https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf.
+     * Absorbs a bit string encoded as specified in
+     * https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf, that is left_encode(len(a)) || a.
      * The bit string here is represented as a byte[] as this implementation is enforcing the optional rule that
      * for a bit string S to be encoded, then len(S) % 8 = 0 must be true.
+     * @param sponge sponge to absorb the encoding into
      * @param a Bit string to be encoded.
-     * @return Encoded bit string as a byte[].
      */
-    private static byte[] encodeString(byte [] a) {
-        int n = determineN(a.length * 8);
-        byte[] result = new byte[a.length + n + 1];
-        byte[] left = leftEncode(a.length * 8, n);
-        System.arraycopy(left, 0, result, 0, left.length);
-        System.arraycopy(a, 0, result, left.length,
-                a.length);
-        return result;
+    static void encodeString(Keccak1600 sponge, byte[] a) {
+        leftEncode(sponge, 8L * a.length);
+        sponge.sha3Update(a);
     }
 
     /**
-     * Pads a bitstring with zero bytes until length of (bitstring / 8) % w = 0.
-     * Specifications taken from https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf.
-     * The bit string here is represented as a byte[] as this implementation is enforcing the optional rule that
-     * for a bit string S it must have a multiple of 8 number of bits. Thus the bitstring / 8 part of the formula can
-     * be ignored.
-     * @param a byte[] representing the bitstring to be padded.
-     * @param w length of padding.
-     * @return padded bitstring.
-     */
-    private static byte[] bytepad(byte[] a, int w) {
-        if (w < 1) throw new IllegalArgumentException("Invalid w for bytepad.");
-        int n = determineN(w);
-        byte[] left = leftEncode(w, n);
-        int extra = (a.length + left.length) % w == 0 ? 0 : w - (a.length + left.length) % w;
-        byte[] result = new byte[a.length + left.length + extra];
-        System.arraycopy(left, 0, result, 0, left.length);
-        System.arraycopy(a, 0, result, left.length, a.length);
-        for (int i = left.length + a.length; i < result.length; i++) {
-            result[i] = 0;
+     * Absorbs left_encode(136), the start of bytepad(X, 136) as specified in
+     * https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf. Once X has been absorbed, the
+     * sponge's zeroPad completes the padding. Since the sponge rate is also 136 bytes the padding simply runs to the
+     * end of the current block.
+     * @param sponge sponge to absorb the encoding into
+     */
+    private static void bytepad(Keccak1600 sponge) {
+        leftEncode(sponge, 136);
+    }
+
+    /**
+     * Returns a sponge holding the cShake256 prefix of KMAC for a customization string, copied from prefixes when
+     * it has been seen before.
+     * @param s Customization string as a byte[]
+     * @return a Keccak1600 sponge ready to absorb the key.
+     */
+    private static Keccak1600 prefix(byte[] s) {
+        Keccak1600 prefix = prefixes.get(ByteBuffer.wrap(s));
+        if (prefix == null) {
+            prefix = cShake256(kmac, s);
+            if (prefixes.size() < PREFIXES) {
+                prefixes.putIfAbsent(ByteBuffer.wrap(s.clone()), prefix);
+            }
         }
-        return result;
+        return new Keccak1600(prefix);
     }
 
     /**
-     * Computes the result of calling the cShake256 function as describe in
-     * https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf.
-     * Note that because this function is only being used with KMACXOF256 n is never the empty string
-     * and thus shake256 will never be called and thus is not implemented.
-     * @param x main input as a byte[]
-     * @param l Length of desired output as an int
+     * Creates a sponge with the prefix of the cShake256 function described in
+     * https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf already absorbed. The main input
+     * and final padding are then absorbed by the caller.
+     * Note that because this function is only being used with KMACXOF256 and ParallelHash256 n is never the empty
+     * string and thus shake256 will never be called and thus is not implemented here.
      * @param n Function name as a byte[]
      * @param s Customization string as a byte[]
-     * @return a byte[] of the result of calling the cShake256 function.
+     * @return a Keccak1600 sponge ready to absorb the main input.
      */
-    private static byte[] cShake256(byte[] x, int l, byte[] n, byte[] s) {
-        if(l == 0) {
-            return new byte[0];
-        }
-        n = encodeString(n);
-        s = encodeString(s);
-        byte[] ns = new byte[n.length + s.length];
-        System.arraycopy(n, 0, ns, 0, n.length);
-        System.arraycopy(s, 0, ns, n.length, s.length);
-        byte[] padN = bytepad(ns, 136);
-        byte[] input = new byte[padN.length + x.length];
-        System.arraycopy(padN, 0, input, 0, padN.length);
-        System.arraycopy(x, 0, input, padN.length, x.length);
-        Keccak1600 keccak_512 = new Keccak1600(l / 8);
-        keccak_512.sha3Update(input);
-        return keccak_512.sha3Final();
+    static Keccak1600 cShake256(byte[] n, byte[] s) {
+        Keccak1600 keccak_512 = new Keccak1600();
+        bytepad(keccak_512);
+        encodeString(keccak_512, n);
+        encodeString(keccak_512, s);
+        keccak_512.zeroPad();
+        return keccak_512;
     }
 
     /**
@@ -0,0 +1,100 @@
+package Model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Keeps KMACXOF256 instances that have had their key and customization string absorbed, for keys that are used
+ * again and again such as a password creating many authentication tags. A computation with a cached key starts from
+ * a copy of the keyed state, skipping the two permutations of bytepad(encodeString("KMAC") || encodeString(S), 136)
+ * and bytepad(encodeString(K), 136).
+ * The cache holds at most a fixed number of keys and drops the least recently used one when it is full. The copies
+ * of the keys it holds are overwritten with zeros when they are dropped or the cache is cleared, so it should be
+ * cleared once they are no longer needed. The keyed states themselves are only dropped, not overwritten.
+ * All methods may be called from any number of threads.
+ */
+public class KMACXOF256Cache {
+
+    /**
+     * Keyed instances by the length of s as 4 bytes || s || k, in least to most recently used order. Since the length
+     * of s is included, different key and customization string pairs never share an entry.
+     */
+    private final LRUCache<ByteBuffer, KMACXOF256> states;
+
+    /**
+     * Creates an empty cache.
+     * @param capacity most keys held at once
+     */
+    public KMACXOF256Cache(int capacity) {
+        states = new LRUCache<>(capacity, (id, keyed) -> clear(id));
+    }
+
+    /**
+     * Returns a KMACXOF256 instance with the key and customization string absorbed, ready for data to be absorbed
+     * with update. The instance belongs to the caller.
+     * @param k The key as a byte[]
+     * @param s Optional customization string as a byte[]
+     * @return keyed KMACXOF256 instance
+     */
+    public KMACXOF256 get(byte[] k, byte[] s) {
+        ByteBuffer id = ByteBuffer.allocate(4 + s.length + k.length).putInt(s.length).put(s).put(k);
+        id.flip();
+        KMACXOF256 keyed = states.get(id);
+        if (keyed == null) {
+            keyed = new KMACXOF256(k, s);
+            if (states.putIfAbsent(id, keyed) == null) {
+                //The cache owns id now.
+                return keyed.copy();
+            }
+        }
+        clear(id);
+        return keyed.copy();
+    }
+
+    /**
+     * Computes KMACXOF256(k, x, L, s), the same as KMACXOF256.compute, starting from the cached state for k and s.
+     * @param k The key as a byte[]
+     * @param x The data as a byte[]
+     * @param L The length of the desired output as an int
+     * @param s Optional customization string as a byte[]
+     * @return a byte[] of the result of calling the KMACXOF256 function
+     */
+    public byte[] compute(byte[] k, byte[] x, int L, byte[] s) {
+        if (L == 0) {
+            return new byte[0];
+        }
+        KMACXOF256 kmacxof = get(k, s);
+        kmacxof.update(x);
+        return kmacxof.squeeze(L / 8);
+    }
+
+    /**
+     * Returns the number of keys currently held.
+     * @return number of cached keyed states
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * Drops all cached keys, overwriting the copies of them held by the cache with zeros.
+     */
+    public void clear() {
+        states.clear();
+    }
+
+    /**
+     * Overwrites an identifier, which holds a copy of the key, with zeros.
+     * @param id identifier no longer in the map
+     */
+    private static void clear(ByteBuffer id) {
+        Arrays.fill(id.array(), (byte) 0);
+    }
+}
@@ -7,6 +7,10 @@ package Model;
     4/27/2021
  */
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
@@ -31,157 +35,297 @@ public class Keccak1600 {
             0x8000000080008081L,0x8000000000008080L,0x0000000080000001L,0x8000000080008008L};
 
     /**
-     * Round Offset values for Keccak-1600. Values copied from the tiny_sha3 at
-     * looking at the project https://github.com/mjosaarinen/tiny_sha3.
+     * Array that all permutations will be performed on. Bytes are stored in each lane in little endian order as
+     * described in the specifications, so byte j of a block is found at bits 8 * (j % 8) of st[j / 8].
      */
-    private static final int[] RO = new int[] {
-            1,  3,  6,  10, 15, 21, 28, 36, 45, 55, 2,  14,
-            27, 41, 56, 8,  25, 43, 62, 18, 39, 61, 20, 44};
+    private final long[] st = new long[25];
 
     /**
-     * Values for Keccak-1600. Values copied from the tiny_sha3 at
-     * looking at the project https://github.com/mjosaarinen/tiny_sha3.
+     * Used to denote the block size, which is fixed at 1088 bits or 136 bytes for KMACXOF256
      */
-    private static final int[] piln = new int[] {
-            10, 7,  11, 17, 18, 3, 5,  16, 8,  21, 24, 4,
-            15, 23, 19, 13, 12, 2, 20, 14, 22, 9,  6,  1};
+    private static final int rsize = 136;
 
     /**
-     * Masks are used to make space in a long value for a byte to be added.
+     * Number of 64 bit lanes in a block.
      */
-    private static final long[] masks = new long[] {
-            0x00FFFFFFFFFFFFFFL, 0xFF00FFFFFFFFFFFFL, 0xFFFF00FFFFFFFFFFL, 0xFFFFFF00FFFFFFFFL,
-            0xFFFFFFFF00FFFFFFL, 0xFFFFFFFFFF00FFFFL, 0xFFFFFFFFFFFF00FFL, 0xFFFFFFFFFFFFFF00L
-    };
+    private static final int rlanes = rsize / 8;
 
     /**
-     * Array that all permutations will be performed on.
+     * Views a byte[] as longs so that whole lanes can be absorbed or squeezed at a time. The byte order matches how
+     * bytes are stored in the st array.
      */
-    private final long[] st = new long[25];
+    private static final VarHandle LANE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
 
     /**
-     * Used to denote the block size, which is fixed at 1088 bits or 136 bytes for KMACXOF256
+     * Same as LANE but for ByteBuffers, both heap and direct.
      */
-    private static final int rsize = 136;
+    private static final VarHandle BUFFER_LANE = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
 
     /**
-     * Denotes the length of the desired output.
+     * Current position within the block for absorbing or squeezing.
      */
-    private final int mdlen;
+    private int pt = 0;
 
     /**
-     * Constructs an instance of Sha3 that will output a given message digest length. rsize is constant for KMACXOF256
-     * that this class is designed to work with and is therefore not a variable.
-     * @param mdlen message digest length
+     * Constructs an instance of Keccak1600 with an empty state. rsize is constant for KMACXOF256 that this class is
+     * designed to work with and is therefore not a variable.
      */
-    Keccak1600(int mdlen) {
+    Keccak1600() {
         Arrays.fill(st, 0);
-        if(mdlen < 1) throw new IllegalArgumentException("mdlen > 0 must be true.");
-        this.mdlen = mdlen;
+    }
+
+    /**
+     * Constructs a copy of another Keccak1600, continuing from the same state and position. Used to start many
+     * sponges from a prefix that has only been absorbed once.
+     * @param other sponge to copy
+     */
+    Keccak1600(Keccak1600 other) {
+        System.arraycopy(other.st, 0, st, 0, st.length);
+        pt = other.pt;
+    }
+
+    /**
+     * Returns this sponge to the state and position of another, without allocating. Used to start the next
+     * computation from a prefix that has only been absorbed once.
+     * @param other sponge to copy
+     */
+    void set(Keccak1600 other) {
+        System.arraycopy(other.st, 0, st, 0, st.length);
+        pt = other.pt;
     }
 
     /**
      * Performs the keccak[1600] permutations on the internal st array.
+     * The lanes are held in local variables and the steps of each round are written out in full so that they can be
+     * kept in registers, with the rotation offsets and pi step lane order of tiny_sha3 applied directly.
+     * Only the round body is unrolled as unrolling all 24 rounds makes the method too large to be JIT compiled.
      */
     private void sha3Keccak1600() {
-        int i, j, r;
-        long t;
-        long[] bc = new long[5];
-
-        //Reverse byte order to simulate little endian when performing permutations
-        //This changes some rotation values during the permutations compared to the original specifications.
-        for(i = 0; i < st.length; i++) {
-            st[i] = Long.reverseBytes(st[i]);
-        }
+        long a00 = st[0], a01 = st[1], a02 = st[2], a03 = st[3], a04 = st[4];
+        long a05 = st[5], a06 = st[6], a07 = st[7], a08 = st[8], a09 = st[9];
+        long a10 = st[10], a11 = st[11], a12 = st[12], a13 = st[13], a14 = st[14];
+        long a15 = st[15], a16 = st[16], a17 = st[17], a18 = st[18], a19 = st[19];
+        long a20 = st[20], a21 = st[21], a22 = st[22], a23 = st[23], a24 = st[24];
 
-        for (r = 0; r < 24; r++) {
+        for (int r = 0; r < 24; r++) {
             //Theta
-            for (i = 0; i < 5; i++) {
-                bc[i] = st[i] ^ st[i + 5] ^ st[i + 10] ^ st[i + 15] ^ st[i + 20];
-            }
-            for (i = 0; i < 5; i++) {
-                t = bc[(i + 4) % 5] ^ Long.rotateLeft(bc[(i + 1) % 5], 1);
-                for (j = 0; j < 25; j += 5) {
-                    st[j + i] ^= t;
-                }
-            }
+            long c0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
+            long c1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
+            long c2 = a02 ^ a07 ^ a12 ^ a17 ^ a22;
+            long c3 = a03 ^ a08 ^ a13 ^ a18 ^ a23;
+            long c4 = a04 ^ a09 ^ a14 ^ a19 ^ a24;
+            long d0 = c4 ^ Long.rotateLeft(c1, 1);
+            long d1 = c0 ^ Long.rotateLeft(c2, 1);
+            long d2 = c1 ^ Long.rotateLeft(c3, 1);
+            long d3 = c2 ^ Long.rotateLeft(c4, 1);
+            long d4 = c3 ^ Long.rotateLeft(c0, 1);
+            a00 ^= d0; a05 ^= d0; a10 ^= d0; a15 ^= d0; a20 ^= d0;
+            a01 ^= d1; a06 ^= d1; a11 ^= d1; a16 ^= d1; a21 ^= d1;
+            a02 ^= d2; a07 ^= d2; a12 ^= d2; a17 ^= d2; a22 ^= d2;
+            a03 ^= d3; a08 ^= d3; a13 ^= d3; a18 ^= d3; a23 ^= d3;
+            a04 ^= d4; a09 ^= d4; a14 ^= d4; a19 ^= d4; a24 ^= d4;
 
             //Rho Pi
-            t = st[1];
-            for (i = 0; i < 24; i++) {
-                j = piln[i];
-                bc[0] = st[j];
-                st[j] = Long.rotateLeft(t, RO[i]);
-                t = bc[0];
-            }
+            c0 = Long.rotateLeft(a01, 1);
+            a01 = Long.rotateLeft(a06, 44);
+            a06 = Long.rotateLeft(a09, 20);
+            a09 = Long.rotateLeft(a22, 61);
+            a22 = Long.rotateLeft(a14, 39);
+            a14 = Long.rotateLeft(a20, 18);
+            a20 = Long.rotateLeft(a02, 62);
+            a02 = Long.rotateLeft(a12, 43);
+            a12 = Long.rotateLeft(a13, 25);
+            a13 = Long.rotateLeft(a19, 8);
+            a19 = Long.rotateLeft(a23, 56);
+            a23 = Long.rotateLeft(a15, 41);
+            a15 = Long.rotateLeft(a04, 27);
+            a04 = Long.rotateLeft(a24, 14);
+            a24 = Long.rotateLeft(a21, 2);
+            a21 = Long.rotateLeft(a08, 55);
+            a08 = Long.rotateLeft(a16, 45);
+            a16 = Long.rotateLeft(a05, 36);
+            a05 = Long.rotateLeft(a03, 28);
+            a03 = Long.rotateLeft(a18, 21);
+            a18 = Long.rotateLeft(a17, 15);
+            a17 = Long.rotateLeft(a11, 10);
+            a11 = Long.rotateLeft(a07, 6);
+            a07 = Long.rotateLeft(a10, 3);
+            a10 = c0;
 
             //Chi
-            for (j = 0; j < 25; j += 5) {
-                for (i = 0; i < 5; i++)
-                    bc[i] = st[j + i];
-                for (i = 0; i < 5; i++)
-                    st[j + i] ^= (~bc[(i + 1) % 5]) & bc[(i + 2) % 5];
-            }
+            c0 = a00 ^ (~a01 & a02);
+            c1 = a01 ^ (~a02 & a03);
+            a02 ^= ~a03 & a04;
+            a03 ^= ~a04 & a00;
+            a04 ^= ~a00 & a01;
+            a00 = c0;
+            a01 = c1;
+            c0 = a05 ^ (~a06 & a07);
+            c1 = a06 ^ (~a07 & a08);
+            a07 ^= ~a08 & a09;
+            a08 ^= ~a09 & a05;
+            a09 ^= ~a05 & a06;
+            a05 = c0;
+            a06 = c1;
+            c0 = a10 ^ (~a11 & a12);
+            c1 = a11 ^ (~a12 & a13);
+            a12 ^= ~a13 & a14;
+            a13 ^= ~a14 & a10;
+            a14 ^= ~a10 & a11;
+            a10 = c0;
+            a11 = c1;
+            c0 = a15 ^ (~a16 & a17);
+            c1 = a16 ^ (~a17 & a18);
+            a17 ^= ~a18 & a19;
+            a18 ^= ~a19 & a15;
+            a19 ^= ~a15 & a16;
+            a15 = c0;
+            a16 = c1;
+            c0 = a20 ^ (~a21 & a22);
+            c1 = a21 ^ (~a22 & a23);
+            a22 ^= ~a23 & a24;
+            a23 ^= ~a24 & a20;
+            a24 ^= ~a20 & a21;
+            a20 = c0;
+            a21 = c1;
 
             //Iota
-            st[0] ^= RC[r];
+            a00 ^= RC[r];
         }
 
-        //Flip the bytes back into their proper positions
-        for (i = 0; i < st.length; i++) {
-            st[i] = Long.reverseBytes(st[i]);
-        }
+        st[0] = a00; st[1] = a01; st[2] = a02; st[3] = a03; st[4] = a04;
+        st[5] = a05; st[6] = a06; st[7] = a07; st[8] = a08; st[9] = a09;
+        st[10] = a10; st[11] = a11; st[12] = a12; st[13] = a13; st[14] = a14;
+        st[15] = a15; st[16] = a16; st[17] = a17; st[18] = a18; st[19] = a19;
+        st[20] = a20; st[21] = a21; st[22] = a22; st[23] = a23; st[24] = a24;
+    }
 
+    /**
+     * Absorbs the data into the keccak[1600] sponge function. May be called any number of times before sha3Xof is
+     * called, with each call continuing from where the last one left off.
+     * Whole blocks are absorbed a lane at a time, only a partial block at the start or end is absorbed byte by byte.
+     * @param data input data
+     * @param off offset of the first byte to absorb
+     * @param len number of bytes to absorb
+     */
+    public void sha3Update(byte[] data, int off, int len) {
+        int end = off + len;
+        while (pt != 0 && off < end) {
+            absorbByte(data[off++]);
+        }
+        while (end - off >= rsize) {
+            for (int i = 0; i < rlanes; i++) {
+                st[i] ^= (long) LANE.get(data, off + 8 * i);
+            }
+            sha3Keccak1600();
+            off += rsize;
+        }
+        while (off < end) {
+            absorbByte(data[off++]);
+        }
     }
 
     /**
-     * Absorbs the data into the keccak[1600] sponge function one block at a time.
-     * Expects that the d value has been appended into the data byte[] before calling.
-     * To understand what the d value is see the section on the Pseudo-code description of the sponge function
-     * at https://keccak.team/keccak_specs_summary.html.
+     * Absorbs the whole byte[] into the keccak[1600] sponge function.
      * @param data input data
      */
     public void sha3Update(byte[] data) {
-        int i, j = 0;
-        for (i = 0; i < data.length; i++) {
-            byte b = ((byte) (st[j / 8] >>> (8 * (7 - j % 8))));
-            st[j/8] = st[j/8] & masks[i % 8];
-            b ^= data[i];
-            st[j / 8] |= Byte.toUnsignedLong(b) << (8 * (7 - j % 8));
-            j++;
-            if(j >= rsize) {
-                sha3Keccak1600();
-                j = 0;
+        sha3Update(data, 0, data.length);
+    }
+
+    /**
+     * Absorbs the remaining bytes of the buffer into the keccak[1600] sponge function. The position of the buffer is
+     * advanced to its limit. Whole blocks are absorbed a lane at a time as with sha3Update(byte[], int, int).
+     * @param data input data
+     */
+    public void sha3Update(ByteBuffer data) {
+        int off = data.position();
+        int end = data.limit();
+        while (pt != 0 && off < end) {
+            absorbByte(data.get(off++));
+        }
+        while (end - off >= rsize) {
+            for (int i = 0; i < rlanes; i++) {
+                st[i] ^= (long) BUFFER_LANE.get(data, off + 8 * i);
             }
+            sha3Keccak1600();
+            off += rsize;
+        }
+        while (off < end) {
+            absorbByte(data.get(off++));
+        }
+        data.position(end);
+    }
+
+    /**
+     * Absorbs a single byte at the current position, performing the permutation if it fills the block.
+     * @param b byte to absorb
+     */
+    void absorbByte(byte b) {
+        st[pt / 8] ^= Byte.toUnsignedLong(b) << (8 * (pt % 8));
+        if (++pt >= rsize) {
+            sha3Keccak1600();
+            pt = 0;
+        }
+    }
+
+    /**
+     * Absorbs zero bytes up to the end of the current block, as bytepad does. Absorbing a zero byte leaves the state
+     * unchanged, so only the permutation is performed, and nothing at all if the block is empty.
+     */
+    void zeroPad() {
+        if (pt != 0) {
+            sha3Keccak1600();
+            pt = 0;
         }
+    }
+
+    /**
+     * Ends the absorbing phase by appending the domain separation bits d and the final bit of the pad10*1 padding,
+     * then switches the sponge function over to squeezing.
+     * To understand what the d value is see the section on the Pseudo-code description of the sponge function
+     * at https://keccak.team/keccak_specs_summary.html.
+     * @param d domain separation bits followed by the first bit of padding, e.g. 0x04 for cShake256
+     */
+    public void sha3Xof(byte d) {
+        int j = pt;
+        st[j / 8] ^= Byte.toUnsignedLong(d) << (8 * (j % 8));
         j = rsize - 1;
-        byte b = ((byte) (st[j / 8] >>> (8 * (7 - j % 8))));
-        st[j/8] = st[j/8] & masks[j % 8];
-        b ^= 0x80;
-        st[j / 8] |= Byte.toUnsignedLong(b) << (8 * (7 - j % 8));
+        st[j / 8] ^= 0x80L << (8 * (j % 8));
         sha3Keccak1600();
+        pt = 0;
     }
 
     /**
-     * Squeezes out a number of bits from the sponge function equal to the message digest length set at creation.
-     * @return byte[] array of size mdlen
+     * Squeezes out the next len bytes from the sponge function. May be called any number of times after sha3Xof,
+     * with each call continuing the output stream from where the last one left off.
+     * Whole blocks are squeezed a lane at a time, only a partial block at the start or end is squeezed byte by byte.
+     * @param out array to write the output to
+     * @param off offset of the first byte to write
+     * @param len number of bytes to write
      */
-    public byte[] sha3Final() {
-        byte[] md = new byte[mdlen];
-        int temp = mdlen;
-
-        while(temp > rsize) {
-            for(int i = 0; i < rsize; i++) {
-                md[md.length - temp + i] = ((byte) (st[i / 8] >>> (8 * (7 - i % 8))));
-            }
+    public void sha3Squeeze(byte[] out, int off, int len) {
+        int end = off + len;
+        while (pt < rsize && off < end) {
+            out[off++] = (byte) (st[pt / 8] >>> (8 * (pt % 8)));
+            pt++;
+        }
+        while (end - off >= rsize) {
             sha3Keccak1600();
-            temp -= rsize;
+            for (int i = 0; i < rlanes; i++) {
+                LANE.set(out, off + 8 * i, st[i]);
+            }
+            off += rsize;
         }
-        for (int i = 0; i < temp; i++) {
-            md[md.length - temp + i] = ((byte) (st[i / 8] >>> (8 * (7 - i % 8))));
+        if (off < end) {
+            sha3Keccak1600();
+            pt = 0;
+            while (off < end) {
+                out[off++] = (byte) (st[pt / 8] >>> (8 * (pt % 8)));
+                pt++;
+            }
         }
-        return md;
-
     }
 
     /**
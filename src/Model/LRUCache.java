@@ -0,0 +1,106 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Map that holds at most a fixed number of entries and drops the least recently used one when it is full, shared by
+ * the caches of keyed KMACXOF256 states, password derived keys and public keys. Every entry that is dropped, or
+ * removed by clear, is passed to a callback once it is no longer in the map, so caches of secrets can overwrite them.
+ * All methods synchronize on the cache, so a caller that needs several calls to happen together can hold its lock
+ * around them.
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class LRUCache<K, V> {
+
+    /**
+     * Entries in least to most recently used order.
+     */
+    private final LinkedHashMap<K, V> map;
+
+    /**
+     * Called with every entry that is dropped or cleared.
+     */
+    private final BiConsumer<? super K, ? super V> onRemove;
+
+    /**
+     * Creates an empty cache that drops entries without doing anything with them.
+     * @param capacity most entries held at once
+     */
+    public LRUCache(int capacity) {
+        this(capacity, (k, v) -> { });
+    }
+
+    /**
+     * Creates an empty cache.
+     * @param capacity most entries held at once
+     * @param onRemove called with every entry that is dropped or cleared, after it has left the map
+     */
+    public LRUCache(int capacity, BiConsumer<? super K, ? super V> onRemove) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity = " + capacity + ". Must be positive.");
+        this.onRemove = onRemove;
+        map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > capacity) {
+                    //Removed here rather than by returning true, so the callback may change the key afterwards.
+                    K key = eldest.getKey();
+                    V value = eldest.getValue();
+                    remove(key);
+                    LRUCache.this.onRemove.accept(key, value);
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the value of a key and marks it as the most recently used.
+     * @param key key to look up
+     * @return value, or null if the key is not held
+     */
+    public synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Adds an entry, dropping the least recently used one if the cache is full. Nothing is added if the key is
+     * already held.
+     * @param key key to add
+     * @param value value to add
+     * @return the value already held for the key, or null if the entry was added
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        return map.putIfAbsent(key, value);
+    }
+
+    /**
+     * Returns the number of entries held.
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Removes all entries, passing each to the callback.
+     */
+    public synchronized void clear() {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(map.entrySet());
+        map.clear();
+        for (Map.Entry<K, V> entry : entries) {
+            onRemove.accept(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package Model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Class for using the ParallelHash256 and ParallelHashXOF256 functions described in
+ * https://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-185.pdf.
+ * The input is split into blocks of b bytes that are each hashed on their own with cSHAKE256 (which is SHAKE256
+ * since its function name and customization string are empty) and the 64 byte results are then hashed in order
+ * with cSHAKE256 using the function name "ParallelHash". Since the blocks are independent they are hashed on a
+ * ForkJoinPool, so a large input is hashed by all available cores.
+ * Data may be passed to update in any number of pieces. Only whole blocks are hashed as they arrive, so a piece
+ * should hold many blocks for the work to spread over the pool.
+ */
+public class ParallelHash256 {
+
+    /**
+     * Function name given to the final cShake256.
+     */
+    private static final byte[] parallelHash = "ParallelHash".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Most blocks hashed in one batch, bounding the memory held for their 64 byte results.
+     */
+    private static final int BATCH = 1 << 14;
+
+    /**
+     * Block size in bytes.
+     */
+    private final int b;
+
+    /**
+     * Pool the blocks are hashed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of consecutive blocks hashed by a single task, chosen so each task covers at least 64 KB.
+     */
+    private final int grain;
+
+    /**
+     * Sponge that the block size, the result of each block, and the final encodings are absorbed into.
+     */
+    private final Keccak1600 sponge;
+
+    /**
+     * Start of a block that has not been completed by the data passed to update so far.
+     */
+    private final byte[] pending;
+
+    /**
+     * Number of bytes in pending.
+     */
+    private int pendingLen = 0;
+
+    /**
+     * Number of blocks absorbed into the sponge so far.
+     */
+    private long blocks = 0;
+
+    /**
+     * Denotes whether the output has been requested. Once it has no more data may be absorbed.
+     */
+    private boolean finished = false;
+
+    /**
+     * Denotes whether the output is being read as ParallelHashXOF256 with squeeze.
+     */
+    private boolean squeezing = false;
+
+    /**
+     * Creates a ParallelHash256 instance that hashes its blocks on the common ForkJoinPool.
+     * @param b block size in bytes
+     * @param s Optional customization string as a byte[]
+     */
+    public ParallelHash256(int b, byte[] s) {
+        this(b, s, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a ParallelHash256 instance that hashes its blocks on the given pool.
+     * @param b block size in bytes
+     * @param s Optional customization string as a byte[]
+     * @param pool pool to hash blocks on
+     */
+    public ParallelHash256(int b, byte[] s, ForkJoinPool pool) {
+        if (b < 1) throw new IllegalArgumentException("b = " + b + ". Block size must be positive.");
+        this.b = b;
+        this.pool = pool;
+        grain = Math.max(1, (1 << 16) / b);
+        pending = new byte[b];
+        sponge = KMACXOF256.cShake256(parallelHash, s);
+        KMACXOF256.leftEncode(sponge, b);
+    }
+
+    /**
+     * Absorbs len bytes of data starting at off.
+     * @param x The data as a byte[]
+     * @param off offset of the first byte to absorb
+     * @param len number of bytes to absorb
+     * @throws IllegalStateException if the output has already been requested
+     */
+    public void update(byte[] x, int off, int len) {
+        update(ByteBuffer.wrap(x, off, len));
+    }
+
+    /**
+     * Absorbs all bytes of data in x.
+     * @param x The data as a byte[]
+     * @throws IllegalStateException if the output has already been requested
+     */
+    public void update(byte[] x) {
+        update(x, 0, x.length);
+    }
+
+    /**
+     * Absorbs the remaining bytes of the buffer. The position of the buffer is advanced to its limit. A direct or
+     * memory mapped buffer is hashed in place without being copied.
+     * @param x The data as a ByteBuffer
+     * @throws IllegalStateException if the output has already been requested
+     */
+    public void update(ByteBuffer x) {
+        if (finished) throw new IllegalStateException("Cannot update ParallelHash256 after the output is requested.");
+        if (pendingLen > 0) {
+            int n = Math.min(b - pendingLen, x.remaining());
+            x.get(pending, pendingLen, n);
+            pendingLen += n;
+            if (pendingLen < b) return;
+            hashBlocks(ByteBuffer.wrap(pending), 1);
+            pendingLen = 0;
+        }
+        while (x.remaining() >= b) {
+            int count = Math.min(BATCH, x.remaining() / b);
+            hashBlocks(x, count);
+        }
+        pendingLen = x.remaining();
+        x.get(pending, 0, pendingLen);
+    }
+
+    /**
+     * Returns the ParallelHash256 output of all data absorbed. Since the output length is part of the input of the
+     * final cShake256 this can only be called once.
+     * @param L The length of the desired output in bits, a multiple of 8
+     * @return a byte[] of L / 8 bytes
+     * @throws IllegalStateException if the output has already been requested
+     */
+    public byte[] digest(int L) {
+        if (finished) throw new IllegalStateException("ParallelHash256 output has already been requested.");
+        finish(L);
+        byte[] out = new byte[L / 8];
+        sponge.sha3Squeeze(out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * Writes the next len bytes of ParallelHashXOF256 output into out starting at off. The first call ends the
+     * absorbing of data. The output does not depend on how many bytes are requested in total, so it may be read in
+     * any number of calls.
+     * @param out array to write the output to
+     * @param off offset of the first byte to write
+     * @param len number of bytes to write
+     * @throws IllegalStateException if digest has already been called
+     */
+    public void squeeze(byte[] out, int off, int len) {
+        if (off < 0 || len < 0 || off + len > out.length || off + len < 0) {
+            throw new IndexOutOfBoundsException("off = " + off + ", len = " + len + ", out.length = " + out.length
+                    + ".");
+        }
+        if (!squeezing) {
+            if (finished) throw new IllegalStateException("ParallelHash256 output has already been requested.");
+            finish(0);
+            squeezing = true;
+        }
+        sponge.sha3Squeeze(out, off, len);
+    }
+
+    /**
+     * Returns the next len bytes of ParallelHashXOF256 output. See squeeze(byte[], int, int).
+     * @param len number of bytes to return
+     * @return a byte[] of the next len bytes of output
+     */
+    public byte[] squeeze(int len) {
+        byte[] out = new byte[len];
+        squeeze(out, 0, len);
+        return out;
+    }
+
+    /**
+     * Computes the result of calling the ParallelHash256 function.
+     * @param x The data as a byte[]
+     * @param b The block size in bytes
+     * @param L The length of the desired output in bits, a multiple of 8
+     * @param s Optional customization string as a byte[]
+     * @return a byte[] of the result of calling the ParallelHash256 function
+     */
+    public static byte[] compute(byte[] x, int b, int L, byte[] s) {
+        ParallelHash256 hash = new ParallelHash256(b, s);
+        hash.update(x);
+        return hash.digest(L);
+    }
+
+    /**
+     * Computes the result of calling the ParallelHashXOF256 function.
+     * @param x The data as a byte[]
+     * @param b The block size in bytes
+     * @param L The length of the desired output in bits, a multiple of 8
+     * @param s Optional customization string as a byte[]
+     * @return a byte[] of the result of calling the ParallelHashXOF256 function
+     */
+    public static byte[] computeXof(byte[] x, int b, int L, byte[] s) {
+        ParallelHash256 hash = new ParallelHash256(b, s);
+        hash.update(x);
+        return hash.squeeze(L / 8);
+    }
+
+    /**
+     * Hashes the last partial block, if any, and absorbs right_encode(n) || right_encode(L) and the padding.
+     * @param L output length in bits, 0 for the XOF variant
+     */
+    private void finish(int L) {
+        if (pendingLen > 0) {
+            hashBlocks(ByteBuffer.wrap(pending, 0, pendingLen), 1);
+            pendingLen = 0;
+        }
+        KMACXOF256.rightEncode(sponge, blocks);
+        KMACXOF256.rightEncode(sponge, L);
+        //cShake256 domain separation bits 00 followed by the first bit of the padding.
+        sponge.sha3Xof((byte) 0x04);
+        finished = true;
+    }
+
+    /**
+     * Hashes count consecutive blocks starting at the position of x on the pool and absorbs their results in order.
+     * The last block may be shorter than b. The position of x is advanced past the blocks.
+     * @param x data to hash
+     * @param count number of blocks
+     */
+    private void hashBlocks(ByteBuffer x, int count) {
+        byte[] chain = new byte[64 * count];
+        if (count == 1) {
+            new Blocks(x, x.position(), 0, 1, chain).compute();
+        } else {
+            pool.invoke(new Blocks(x, x.position(), 0, count, chain));
+        }
+        x.position(Math.min(x.position() + count * b, x.limit()));
+        sponge.sha3Update(chain);
+        blocks += count;
+    }
+
+    /**
+     * Hashes a range of blocks, splitting it in half until each part is at most grain blocks.
+     */
+    private final class Blocks extends RecursiveAction {
+
+        /**
+         * RecursiveAction is Serializable, but tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Data being hashed, shared by all tasks and only read through absolute positions.
+         */
+        private final ByteBuffer x;
+
+        /**
+         * Position of the first block in x.
+         */
+        private final int start;
+
+        /**
+         * First block of this task.
+         */
+        private final int lo;
+
+        /**
+         * One past the last block of this task.
+         */
+        private final int hi;
+
+        /**
+         * Where the 64 byte result of block i is written at 64 * i.
+         */
+        private final byte[] chain;
+
+        /**
+         * Creates a task hashing blocks lo to hi - 1.
+         * @param x data being hashed
+         * @param start position of block 0 in x
+         * @param lo first block
+         * @param hi one past the last block
+         * @param chain array for the results
+         */
+        Blocks(ByteBuffer x, int start, int lo, int hi, byte[] chain) {
+            this.x = x;
+            this.start = start;
+            this.lo = lo;
+            this.hi = hi;
+            this.chain = chain;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > grain) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Blocks(x, start, lo, mid, chain), new Blocks(x, start, mid, hi, chain));
+                return;
+            }
+            //Each task needs its own position and limit.
+            ByteBuffer view = x.duplicate();
+            for (int i = lo; i < hi; i++) {
+                int from = start + i * b;
+                view.limit(Math.min(from + b, x.limit())).position(from);
+                //cShake256 with empty function name and customization string is shake256, whose domain separation
+                //bits are 1111.
+                Keccak1600 shake = new Keccak1600();
+                shake.sha3Update(view);
+                shake.sha3Xof((byte) 0x1F);
+                shake.sha3Squeeze(chain, 64 * i, 64);
+            }
+        }
+    }
+}
@@ -0,0 +1,653 @@
+package View;
+
+import Control.ChunkedContainer;
+import Control.Operations;
+import Control.Signer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Console;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    TCSS 487
+    Project
+    Walter Kagel
+    5/19/2021
+ */
+
+/**
+ * Command line front end that runs the same operations as the GUI without opening any windows, so the application
+ * can be scripted and used on machines without a display. Input and output default to stdin and stdout and can be
+ * replaced with files. Passwords are read from a file given with -p, or typed at the console otherwise.
+ * The exit status is 0 on success, 1 if a decryption or signature failed to validate, and 2 on any other error.
+ */
+public class CLI {
+
+    /**
+     * Exit status when the operation succeeded.
+     */
+    static final int OK = 0;
+
+    /**
+     * Exit status when a tag or signature did not validate.
+     */
+    static final int INVALID = 1;
+
+    /**
+     * Exit status for bad arguments and IO errors.
+     */
+    static final int ERROR = 2;
+
+    /**
+     * Usage message printed for bad arguments.
+     */
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "usage: <command> [options]",
+            "  hash    [-i in] [-o out]              hash input, written as hex",
+            "  tag     [-i in] [-o out] [-p pwfile]  authentication tag of input",
+            "  senc    [-i in] [-o out] [-p pwfile]  symmetric encryption",
+            "  sdec    [-i in] [-o out] [-p pwfile]  symmetric decryption",
+            "  keygen  [-o out] [-p pwfile]          public key for a password",
+            "  penc    -k key [-i in] [-o out]       encryption under a public key",
+            "  pdec    [-i in] [-o out] [-p pwfile]  decryption with a password",
+            "  menc    -l keys [-i in] [-o out]      encryption for every public key file named in keys",
+            "  mdec    [-i in] [-o out] [-p pwfile]  decryption of menc output with a recipient's password",
+            "  cenc    [-i in] [-o out] [-p pwfile]  chunked symmetric encryption that any range can be read from",
+            "  cdec    -i in [-o out] [-p pwfile] [-r pos:len]  decryption of cenc output, or of len bytes at pos",
+            "  sign    [-i in] [-o out] [-p pwfile]  signature of input",
+            "  sign    -l list [-p pwfile]           signature of each file named in list, written to <file>.sig",
+            "  verify  -k key -s sig [-i in]         verify a signature of input",
+            "in and out default to stdin and stdout, '-' also selects them.");
+
+    /**
+     * Standard input of the command.
+     */
+    private final InputStream stdin;
+
+    /**
+     * Standard output of the command.
+     */
+    private final OutputStream stdout;
+
+    /**
+     * Where messages for the user are printed.
+     */
+    private final PrintStream err;
+
+    /**
+     * Creates a command line front end reading and writing the given streams.
+     * @param stdin used when no input file is given
+     * @param stdout used when no output file is given
+     * @param err used for messages and errors
+     */
+    CLI(InputStream stdin, OutputStream stdout, PrintStream err) {
+        this.stdin = stdin;
+        this.stdout = stdout;
+        this.err = err;
+    }
+
+    /**
+     * Runs a single command using the process' standard streams.
+     * @param args command and its options
+     * @return exit status
+     */
+    public static int run(String[] args) {
+        return new CLI(System.in, System.out, System.err).execute(args);
+    }
+
+    /**
+     * Runs a single command.
+     * @param args command and its options
+     * @return exit status
+     */
+    int execute(String[] args) {
+        if (args.length == 0) {
+            return usage("No command given.");
+        }
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 1; i < args.length; i += 2) {
+            if (!args[i].matches("-[ioksplr]") || i + 1 == args.length) {
+                return usage("Bad option " + args[i] + ".");
+            }
+            opts.put(args[i], args[i + 1]);
+        }
+        try {
+            switch (args[0]) {
+                case "hash":
+                    return hash(opts);
+                case "tag":
+                    return tag(opts);
+                case "senc":
+                    return symmetricEncrypt(opts);
+                case "sdec":
+                    return symmetricDecrypt(opts);
+                case "keygen":
+                    write(Operations.keyPair(password(opts)), opts);
+                    return OK;
+                case "penc":
+                    return asEncrypt(opts);
+                case "pdec":
+                    return asDecrypt(opts);
+                case "menc":
+                    return envelopeEncrypt(opts);
+                case "mdec":
+                    return envelopeDecrypt(opts);
+                case "cenc":
+                    return chunkedEncrypt(opts);
+                case "cdec":
+                    return chunkedDecrypt(opts);
+                case "sign":
+                    return sign(opts);
+                case "verify":
+                    return verify(opts);
+                default:
+                    return usage("Unknown command " + args[0] + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return ERROR;
+        } catch (IOException e) {
+            err.println("IO error: " + e.getMessage());
+            return ERROR;
+        } catch (RuntimeException e) {
+            //Anything else is still an error, never a failed validation.
+            err.println("Error: " + e);
+            return ERROR;
+        }
+    }
+
+    /**
+     * Hashes the input and writes the hash as hex.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int hash(Map<String, String> opts) throws IOException {
+        Path file = inputFile(opts);
+        byte[] hash;
+        if (file != null) {
+            hash = Operations.computeHash(file);
+        } else {
+            hash = Operations.computeHash(stdin);
+        }
+        writeHex(hash, opts);
+        return OK;
+    }
+
+    /**
+     * Writes the authentication tag of the input.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int tag(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        Path file = inputFile(opts);
+        byte[] tag;
+        if (file != null) {
+            tag = Operations.authentication(file, pw);
+        } else {
+            tag = Operations.authentication(stdin, pw);
+        }
+        write(tag, opts);
+        return OK;
+    }
+
+    /**
+     * Symmetrically encrypts the input.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int symmetricEncrypt(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        try (InputStream in = input(opts); OutputStream out = output(opts)) {
+            Operations.symmetricEncrypt(in, out, pw);
+        }
+        return OK;
+    }
+
+    /**
+     * Symmetrically decrypts the input. Nothing is written unless the tag matches.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int symmetricDecrypt(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        return decryptValidated(opts, (in, out) -> Operations.symmetricDecrypt(in, out, pw));
+    }
+
+    /**
+     * Encrypts the input under the public key given with -k.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int asEncrypt(Map<String, String> opts) throws IOException {
+        byte[] pub = publicKey(opts);
+        try (InputStream in = input(opts); OutputStream out = output(opts)) {
+            Operations.asEncrypt(in, out, pub);
+        }
+        return OK;
+    }
+
+    /**
+     * Decrypts input that was encrypted under a public key. Nothing is written unless the tag matches.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int asDecrypt(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        return decryptValidated(opts, (in, out) -> Operations.asDecrypt(in, out, pw));
+    }
+
+    /**
+     * Encrypts the input once for every public key file named in the list given with -l, one name per line.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     * @throws IllegalArgumentException if the list is missing or names a file that is not a public key.
+     */
+    private int envelopeEncrypt(Map<String, String> opts) throws IOException {
+        List<Path> files = list(opts);
+        byte[][] pubKeys = new byte[files.size()][];
+        for (int i = 0; i < pubKeys.length; i++) {
+            pubKeys[i] = Files.readAllBytes(files.get(i));
+            if (pubKeys[i].length != 67) {
+                throw new IllegalArgumentException("Not a public key: " + files.get(i) + ".");
+            }
+        }
+        try (InputStream in = input(opts); OutputStream out = output(opts)) {
+            Operations.envelopeEncrypt(in, out, pubKeys);
+        }
+        return OK;
+    }
+
+    /**
+     * Decrypts input that was encrypted for several public keys. Nothing is written unless the tag matches.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int envelopeDecrypt(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        return decryptValidated(opts, (in, out) -> Operations.envelopeDecrypt(in, out, pw));
+    }
+
+    /**
+     * Encrypts the input into a chunked container.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int chunkedEncrypt(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        try (InputStream in = input(opts); OutputStream out = output(opts)) {
+            ChunkedContainer.encrypt(in, out, pw);
+        }
+        return OK;
+    }
+
+    /**
+     * Decrypts the chunked container given with -i, or only the range given with -r as pos:len. Only the chunks
+     * holding the range are read. Nothing is written unless their tags match.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     * @throws IllegalArgumentException if there is no input file or the range is not within the data.
+     */
+    private int chunkedDecrypt(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        Path file = inputFile(opts);
+        if (file == null) {
+            throw new IllegalArgumentException("cdec needs a file to read from, use -i.");
+        }
+        try (ChunkedContainer container = ChunkedContainer.open(file, pw)) {
+            if (container == null) {
+                err.println("Failed to validate. No output will be written.");
+                return INVALID;
+            }
+            String range = opts.get("-r");
+            if (range == null) {
+                return writeValidated(opts, container::decrypt);
+            }
+            String[] parts = range.split(":");
+            byte[] m;
+            try {
+                if (parts.length != 2) throw new NumberFormatException();
+                m = container.read(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad range " + range + ", expected pos:len.");
+            }
+            if (m == null) {
+                err.println("Failed to validate. No output will be written.");
+                return INVALID;
+            }
+            write(m, opts);
+            return OK;
+        }
+    }
+
+    /**
+     * Writes a signature of the input.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int sign(Map<String, String> opts) throws IOException {
+        byte[] pw = password(opts);
+        if (opts.containsKey("-l")) {
+            return signList(opts, new Signer(pw));
+        }
+        Path file = inputFile(opts);
+        byte[] sig;
+        if (file != null) {
+            sig = new Signer(pw).sign(file);
+        } else {
+            try (InputStream in = input(opts)) {
+                sig = Operations.createSig(in, pw);
+            }
+        }
+        write(sig, opts);
+        return OK;
+    }
+
+    /**
+     * Signs every file named in the list given with -l, one name per line, writing each signature next to its file
+     * with .sig appended to the name. The files are signed in parallel with the key only derived once.
+     * @param opts parsed options
+     * @param signer signer for the password
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int signList(Map<String, String> opts, Signer signer) throws IOException {
+        List<Path> files = list(opts);
+        byte[][] sigs = signer.signAll(files);
+        for (int i = 0; i < sigs.length; i++) {
+            Files.write(Paths.get(files.get(i) + ".sig"), sigs[i]);
+        }
+        err.println("Signed " + sigs.length + " files.");
+        return OK;
+    }
+
+    /**
+     * Verifies the signature given with -s of the input against the public key given with -k.
+     * @param opts parsed options
+     * @return exit status
+     * @throws IOException if reading fails.
+     */
+    private int verify(Map<String, String> opts) throws IOException {
+        byte[] pub = publicKey(opts);
+        byte[] sig = required(opts, "-s");
+        Path file = inputFile(opts);
+        boolean valid;
+        if (sig.length != 67 * 2) {
+            valid = false;
+        } else if (file != null) {
+            valid = Operations.verifySig(sig, file, pub);
+        } else {
+            valid = Operations.verifySig(sig, stdin, pub);
+        }
+        err.println(valid ? "Signature validated." : "Signature not validated.");
+        return valid ? OK : INVALID;
+    }
+
+    /**
+     * Prints a problem with the arguments followed by the usage message.
+     * @param message problem to print
+     * @return exit status for bad arguments
+     */
+    private int usage(String message) {
+        err.println(message);
+        err.println(USAGE);
+        return ERROR;
+    }
+
+    /**
+     * Returns the input file given with -i, for operations that can memory map it.
+     * @param opts parsed options
+     * @return input file, or null when reading stdin
+     */
+    private static Path inputFile(Map<String, String> opts) {
+        String name = opts.getOrDefault("-i", "-");
+        return name.equals("-") ? null : Paths.get(name);
+    }
+
+    /**
+     * Opens the input file given with -i, or stdin if there is none.
+     * @param opts parsed options
+     * @return input stream, closing it does not close stdin
+     * @throws IOException if the file cannot be opened.
+     */
+    private InputStream input(Map<String, String> opts) throws IOException {
+        String name = opts.getOrDefault("-i", "-");
+        if (name.equals("-")) {
+            return new BufferedInputStream(stdin) {
+                @Override
+                public void close() {
+                }
+            };
+        }
+        return Files.newInputStream(Paths.get(name));
+    }
+
+    /**
+     * Opens the output file given with -o, or stdout if there is none.
+     * @param opts parsed options
+     * @return output stream, closing it flushes but does not close stdout
+     * @throws IOException if the file cannot be opened.
+     */
+    private OutputStream output(Map<String, String> opts) throws IOException {
+        String name = opts.getOrDefault("-o", "-");
+        if (name.equals("-")) {
+            return new BufferedOutputStream(stdout) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        return Files.newOutputStream(Paths.get(name));
+    }
+
+    /**
+     * Writes a byte[] to the output.
+     * @param outByte data to write
+     * @param opts parsed options
+     * @throws IOException if writing fails.
+     */
+    private void write(byte[] outByte, Map<String, String> opts) throws IOException {
+        try (OutputStream out = output(opts)) {
+            out.write(outByte);
+        }
+    }
+
+    /**
+     * Writes a byte[] to the output as capital hex characters, like the GUI does for hashes. A line break is
+     * added when writing to stdout.
+     * @param outByte data to write
+     * @param opts parsed options
+     * @throws IOException if writing fails.
+     */
+    private void writeHex(byte[] outByte, Map<String, String> opts) throws IOException {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : outByte) {
+            hex.append(String.format("%02X", b));
+        }
+        if (opts.getOrDefault("-o", "-").equals("-")) {
+            hex.append(System.lineSeparator());
+        }
+        write(hex.toString().getBytes(StandardCharsets.UTF_8), opts);
+    }
+
+    /**
+     * Runs a decryption of the input that goes through a temporary file, so the output only appears once the tag
+     * has matched. When writing to stdout the decrypted file is copied there afterwards.
+     * @param opts parsed options
+     * @param decryption decrypts an input stream into a file
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int decryptValidated(Map<String, String> opts, FileDecryption decryption) throws IOException {
+        return writeValidated(opts, out -> {
+            try (InputStream in = input(opts)) {
+                return decryption.decrypt(in, out);
+            }
+        });
+    }
+
+    /**
+     * Runs a decryption into a file and writes the result to the output only if the tag matched, for decryptions
+     * that read their input themselves.
+     * @param opts parsed options
+     * @param decryption decrypts into a file
+     * @return exit status
+     * @throws IOException if reading or writing fails.
+     */
+    private int writeValidated(Map<String, String> opts, PathDecryption decryption) throws IOException {
+        String name = opts.getOrDefault("-o", "-");
+        Path out = name.equals("-") ? Files.createTempFile("decrypted", ".tmp") : Paths.get(name);
+        try {
+            if (!decryption.decrypt(out)) {
+                err.println("Failed to validate. No output will be written.");
+                return INVALID;
+            }
+            if (name.equals("-")) {
+                try (OutputStream stdoutStream = output(opts)) {
+                    Files.copy(out, stdoutStream);
+                }
+            }
+            return OK;
+        } finally {
+            if (name.equals("-")) {
+                Files.deleteIfExists(out);
+            }
+        }
+    }
+
+    /**
+     * Reads the whole file named by a required option.
+     * @param opts parsed options
+     * @param opt option naming the file
+     * @return contents of the file
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the option is missing.
+     */
+    private static byte[] required(Map<String, String> opts, String opt) throws IOException {
+        String name = opts.get(opt);
+        if (name == null) {
+            throw new IllegalArgumentException("Missing option " + opt + ".");
+        }
+        return Files.readAllBytes(Paths.get(name));
+    }
+
+    /**
+     * Reads the file names in the list given with -l, one name per line, skipping blank lines.
+     * @param opts parsed options
+     * @return files named in the list
+     * @throws IOException if the list cannot be read.
+     * @throws IllegalArgumentException if the option is missing.
+     */
+    private static List<Path> list(Map<String, String> opts) throws IOException {
+        String name = opts.get("-l");
+        if (name == null) {
+            throw new IllegalArgumentException("Missing option -l.");
+        }
+        List<Path> files = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(name), StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                files.add(Paths.get(line.strip()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Reads the public key file given with -k.
+     * @param opts parsed options
+     * @return 67 byte public key
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the option is missing or the file is not a public key.
+     */
+    private static byte[] publicKey(Map<String, String> opts) throws IOException {
+        byte[] pub = required(opts, "-k");
+        if (pub.length != 67) {
+            throw new IllegalArgumentException("Not a public key: " + opts.get("-k") + ".");
+        }
+        return pub;
+    }
+
+    /**
+     * Gets the password from the file given with -p, without a trailing line break, or from the console.
+     * @param opts parsed options
+     * @return password as UTF-8 bytes, the same bytes the GUI would use for the same text
+     * @throws IOException if the password file cannot be read.
+     * @throws IllegalArgumentException if there is no password file and no console.
+     */
+    private static byte[] password(Map<String, String> opts) throws IOException {
+        String name = opts.get("-p");
+        if (name != null) {
+            byte[] pw = Files.readAllBytes(Paths.get(name));
+            int len = pw.length;
+            if (len > 0 && pw[len - 1] == '\n') len--;
+            if (len > 0 && pw[len - 1] == '\r') len--;
+            return Arrays.copyOf(pw, len);
+        }
+        Console console = System.console();
+        if (console == null) {
+            throw new IllegalArgumentException("No console to read the password from, use -p.");
+        }
+        char[] pw = console.readPassword("Password: ");
+        if (pw == null) {
+            throw new IllegalArgumentException("No password entered.");
+        }
+        byte[] out = new String(pw).getBytes(StandardCharsets.UTF_8);
+        Arrays.fill(pw, '\0');
+        return out;
+    }
+
+    /**
+     * Decryption of an input stream into a file, as done by Operations.symmetricDecrypt, asDecrypt and
+     * envelopeDecrypt.
+     */
+    private interface FileDecryption {
+
+        /**
+         * Decrypts in into out.
+         * @param in data to decrypt
+         * @param out file the plaintext is moved to if the tag matched
+         * @return true if the tag matched, false otherwise
+         * @throws IOException if reading or writing fails.
+         */
+        boolean decrypt(InputStream in, Path out) throws IOException;
+    }
+
+    /**
+     * Decryption into a file that reads its own input, as done by ChunkedContainer.decrypt.
+     */
+    private interface PathDecryption {
+
+        /**
+         * Decrypts into out.
+         * @param out file the plaintext is moved to if the tag matched
+         * @return true if the tag matched, false otherwise
+         * @throws IOException if reading or writing fails.
+         */
+        boolean decrypt(Path out) throws IOException;
+    }
+}
@@ -14,14 +14,26 @@ import Control.Controller;
  * and input text. These functions are hashing, symmetric encryption, symmetric decryption, and creating a tag using
  * KMACXOF256 and generating a public key, asymmetric encryption, asymmetric decryption, digitally signing a file,
  * and verifying a digital signature using Schnorr/ECDHIES, the E-521 curve, and KMACXOF256.
+ * With no arguments the GUI is started, otherwise the arguments are run as a command by the CLI, which never loads
+ * Swing or AWT.
  */
 public class Main {
 
     /**
      * Starts the program.
-     * @param args N/A
+     * @param args command and options for the CLI, or none to start the GUI
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(CLI.run(args));
+        }
+        startGUI();
+    }
+
+    /**
+     * Builds the GUI and its controller. Kept out of main so that the GUI classes are only loaded when needed.
+     */
+    private static void startGUI() {
         GUI view = new GUI();
         Controller cont = new Controller(view);
         view.setCont(cont);
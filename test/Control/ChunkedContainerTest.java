@@ -0,0 +1,143 @@
+package Control;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedContainerTest {
+
+    @TempDir
+    Path dir;
+
+    private final byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+
+    private byte[] bytes(int len) {
+        byte[] m = new byte[len];
+        new Random(487).nextBytes(m);
+        return m;
+    }
+
+    private Path encrypt(byte[] m, int chunkSize) throws IOException {
+        ByteArrayOutputStream c = new ByteArrayOutputStream();
+        ChunkedContainer.encrypt(new ByteArrayInputStream(m), c, pw, chunkSize);
+        Path file = dir.resolve("c" + m.length + "_" + chunkSize);
+        Files.write(file, c.toByteArray());
+        return file;
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        for (int len : new int[] {0, 1, 99, 100, 101, 1000, 100 * 70 + 5}) {
+            byte[] m = bytes(len);
+            Path file = encrypt(m, 100);
+            //Input that fills its last chunk is followed by an empty one.
+            long chunks = len / 100 + 1;
+            assertEquals(ChunkedContainer.HEADER + chunks * 64 + len, Files.size(file));
+            try (ChunkedContainer container = ChunkedContainer.open(file, pw)) {
+                assertEquals(len, container.length());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertTrue(container.decrypt(out));
+                assertArrayEquals(m, out.toByteArray());
+                Path plain = dir.resolve("m");
+                assertTrue(container.decrypt(plain));
+                assertArrayEquals(m, Files.readAllBytes(plain));
+            }
+        }
+    }
+
+    @Test
+    void largeChunks() throws IOException {
+        byte[] m = bytes(3 * ChunkedContainer.MAX_CHUNK_SIZE / 2);
+        try (ChunkedContainer container = ChunkedContainer.open(encrypt(m, ChunkedContainer.MAX_CHUNK_SIZE), pw)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertTrue(container.decrypt(out));
+            assertArrayEquals(m, out.toByteArray());
+        }
+    }
+
+    @Test
+    void randomAccess() throws IOException {
+        byte[] m = bytes(10000);
+        try (ChunkedContainer container = ChunkedContainer.open(encrypt(m, 256), pw)) {
+            Random r = new Random();
+            for (int i = 0; i < 50; i++) {
+                int pos = r.nextInt(m.length + 1);
+                int len = r.nextInt(m.length - pos + 1);
+                assertArrayEquals(Arrays.copyOfRange(m, pos, pos + len), container.read(pos, len));
+            }
+            assertArrayEquals(Arrays.copyOfRange(m, 9999, 10000), container.read(9999, 1));
+            assertThrows(IllegalArgumentException.class, () -> container.read(9999, 2));
+            assertThrows(IllegalArgumentException.class, () -> container.read(-1, 1));
+        }
+    }
+
+    @Test
+    void tamperedChunkOnlyFailsItsRanges() throws IOException {
+        byte[] m = bytes(1000);
+        Path file = encrypt(m, 100);
+        byte[] c = Files.readAllBytes(file);
+        //Flip a byte of the ciphertext of chunk 3.
+        c[ChunkedContainer.HEADER + 3 * 164 + 10] ^= 1;
+        Files.write(file, c);
+        try (ChunkedContainer container = ChunkedContainer.open(file, pw)) {
+            assertNull(container.read(300, 1));
+            assertNull(container.read(250, 100));
+            assertArrayEquals(Arrays.copyOfRange(m, 0, 300), container.read(0, 300));
+            assertArrayEquals(Arrays.copyOfRange(m, 400, 1000), container.read(400, 600));
+            assertFalse(container.decrypt(new ByteArrayOutputStream()));
+        }
+    }
+
+    @Test
+    void truncatedOrSwapped() throws IOException {
+        byte[] m = bytes(1000);
+        byte[] c = Files.readAllBytes(encrypt(m, 100));
+        //Dropping the last (empty) chunk leaves a full chunk last, which is never written.
+        Path truncated = dir.resolve("truncated");
+        Files.write(truncated, Arrays.copyOf(c, c.length - 64));
+        assertNull(ChunkedContainer.open(truncated, pw));
+        //Cutting into chunk 9 makes it a short last chunk, whose tag does not match.
+        Files.write(truncated, Arrays.copyOf(c, c.length - 64 - 50));
+        try (ChunkedContainer container = ChunkedContainer.open(truncated, pw)) {
+            assertEquals(950, container.length());
+            assertNull(container.read(900, 10));
+            assertArrayEquals(Arrays.copyOfRange(m, 0, 900), container.read(0, 900));
+        }
+        Path swapped = dir.resolve("swapped");
+        byte[] s = c.clone();
+        System.arraycopy(c, ChunkedContainer.HEADER, s, ChunkedContainer.HEADER + 164, 164);
+        System.arraycopy(c, ChunkedContainer.HEADER + 164, s, ChunkedContainer.HEADER, 164);
+        Files.write(swapped, s);
+        try (ChunkedContainer container = ChunkedContainer.open(swapped, pw)) {
+            assertNull(container.read(0, 1));
+            assertNull(container.read(100, 1));
+            assertArrayEquals(Arrays.copyOfRange(m, 200, 1000), container.read(200, 800));
+        }
+    }
+
+    @Test
+    void wrongPasswordOrNotAContainer() throws IOException {
+        Path file = encrypt(bytes(500), 100);
+        assertNull(ChunkedContainer.open(file, "other".getBytes(StandardCharsets.UTF_8)));
+        Path shortFile = dir.resolve("short");
+        Files.write(shortFile, new byte[ChunkedContainer.HEADER - 1]);
+        assertNull(ChunkedContainer.open(shortFile, pw));
+        Path noChunks = dir.resolve("noChunks");
+        Files.write(noChunks, Arrays.copyOf(Files.readAllBytes(file), ChunkedContainer.HEADER + 10));
+        assertNull(ChunkedContainer.open(noChunks, pw));
+        assertThrows(IllegalArgumentException.class, () -> ChunkedContainer.encrypt(new ByteArrayInputStream(
+                new byte[1]), new ByteArrayOutputStream(), pw, 0));
+        assertThrows(IllegalArgumentException.class, () -> ChunkedContainer.encrypt(new ByteArrayInputStream(
+                new byte[1]), new ByteArrayOutputStream(), pw, ChunkedContainer.MAX_CHUNK_SIZE + 1));
+    }
+}
@@ -0,0 +1,70 @@
+package Control;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyCacheTest {
+
+    private final byte[] pw1 = "password".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] pw2 = "other".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] pw3 = "third".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void matchesOperations() {
+        KeyCache cache = new KeyCache(4);
+        assertEquals(Operations.privateScalar(pw1), cache.privateScalar(pw1));
+        assertArrayEquals(Operations.keyPair(pw1), cache.publicKey(pw1));
+        assertArrayEquals(Operations.keyPair(pw2), cache.publicKey(pw2));
+        assertEquals(Operations.privateScalar(pw2), cache.privateScalar(pw2));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void hitsAndMisses() {
+        KeyCache cache = new KeyCache(4);
+        cache.privateScalar(pw1);
+        cache.privateScalar(pw1);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        //The scalar is cached but the public key still has to be computed once.
+        cache.publicKey(pw1);
+        cache.publicKey(pw1);
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void leastRecentlyUsedDropped() {
+        KeyCache cache = new KeyCache(2);
+        cache.privateScalar(pw1);
+        cache.privateScalar(pw2);
+        cache.privateScalar(pw1);
+        cache.privateScalar(pw3);
+        assertEquals(2, cache.size());
+        //pw2 was dropped, pw1 was kept.
+        cache.privateScalar(pw1);
+        assertEquals(2, cache.hits());
+        cache.privateScalar(pw2);
+        assertEquals(4, cache.misses());
+        assertEquals(Operations.privateScalar(pw2), cache.privateScalar(pw2));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(Operations.privateScalar(pw1), cache.privateScalar(pw1));
+    }
+
+    @Test
+    void decryptAndSignWithCachedKey() {
+        KeyCache cache = new KeyCache(4);
+        byte[] m = "message".getBytes(StandardCharsets.UTF_8);
+        byte[] c = Operations.asEncrypt(m, cache.publicKey(pw1));
+        assertArrayEquals(m, Operations.asDecrypt(c, cache.privateScalar(pw1)));
+        byte[] sig = new Signer(cache.privateScalar(pw1), ForkJoinPool.commonPool()).sign(m);
+        assertArrayEquals(Operations.createSig(m, pw1), sig);
+    }
+}
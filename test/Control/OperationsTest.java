@@ -0,0 +1,322 @@
+package Control;
+
+import Model.KMACXOF256;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationsTest {
+
+    @TempDir
+    Path dir;
+
+    private final Random rand = new Random(487);
+
+    private byte[] bytes(int len) {
+        byte[] out = new byte[len];
+        rand.nextBytes(out);
+        return out;
+    }
+
+    @Test
+    void hashFile() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        for (int len : new int[] {0, 1, 135, 136, 137, 100000}) {
+            byte[] m = bytes(len);
+            Path file = dir.resolve("m" + len);
+            Files.write(file, m);
+            assertArrayEquals(Operations.computeHash(m), Operations.computeHash(file));
+            assertArrayEquals(Operations.authentication(m, pw), Operations.authentication(file, pw));
+        }
+    }
+
+    @Test
+    void hashFileWindows() throws IOException {
+        byte[] m = bytes(100000);
+        Path file = dir.resolve("m");
+        Files.write(file, m);
+        byte[] expected = KMACXOF256.compute(new byte[0], m, 512, "D".getBytes(StandardCharsets.UTF_8));
+        //Windows that do and do not line up with the 136 byte blocks.
+        for (long window : new long[] {136, 1000, 4096, 99999}) {
+            KMACXOF256 kmac = new KMACXOF256(new byte[0], "D".getBytes(StandardCharsets.UTF_8));
+            Operations.absorb(kmac, file, window);
+            assertArrayEquals(expected, kmac.squeeze(64));
+        }
+    }
+
+    @Test
+    void symmetricRoundTrip() {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        for (int len : new int[] {0, 1, 135, 136, 137, 5000}) {
+            byte[] m = bytes(len);
+            assertArrayEquals(m, Operations.symmetricDecrypt(Operations.symmetricEncrypt(m, pw), pw));
+        }
+    }
+
+    @Test
+    void symmetricWrongPassword() {
+        byte[] c = Operations.symmetricEncrypt(bytes(100), "password".getBytes(StandardCharsets.UTF_8));
+        assertNull(Operations.symmetricDecrypt(c, "wrong".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Decrypts straight from the definition, m = KMACXOF256(ke, "", 8|c|, "SKE") xor c, with the whole keystream
+     * computed at once.
+     */
+    private static byte[] referenceDecrypt(byte[] c, byte[] pw) {
+        byte[] zpw = new byte[64 + pw.length];
+        System.arraycopy(c, 0, zpw, 0, 64);
+        System.arraycopy(pw, 0, zpw, 64, pw.length);
+        byte[] keka = KMACXOF256.compute(zpw, new byte[0], 1024, "S".getBytes(StandardCharsets.UTF_8));
+        byte[] m = KMACXOF256.compute(Arrays.copyOf(keka, 64), new byte[0], (c.length - 128) * 8,
+                "SKE".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < m.length; i++) {
+            m[i] ^= c[64 + i];
+        }
+        byte[] t = KMACXOF256.compute(Arrays.copyOfRange(keka, 64, 128), m, 512,
+                "SKA".getBytes(StandardCharsets.UTF_8));
+        return Arrays.equals(t, Arrays.copyOfRange(c, c.length - 64, c.length)) ? m : null;
+    }
+
+    @Test
+    void symmetricMatchesDefinition() {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[] m = bytes(1000);
+        assertArrayEquals(m, referenceDecrypt(Operations.symmetricEncrypt(m, pw), pw));
+    }
+
+    @Test
+    void symmetricStreaming() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        for (int len : new int[] {0, 1, 63, 64, 65, 65536, 65537, 65536 + 64, 200000}) {
+            byte[] m = bytes(len);
+            ByteArrayOutputStream c = new ByteArrayOutputStream();
+            Operations.symmetricEncrypt(new ByteArrayInputStream(m), c, pw);
+            assertArrayEquals(m, referenceDecrypt(c.toByteArray(), pw));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertTrue(Operations.symmetricDecrypt(new ByteArrayInputStream(c.toByteArray()), out, pw));
+            assertArrayEquals(m, out.toByteArray());
+            out.reset();
+            byte[] fromArray = Operations.symmetricEncrypt(m, pw);
+            assertTrue(Operations.symmetricDecrypt(new ByteArrayInputStream(fromArray), out, pw));
+            assertArrayEquals(m, out.toByteArray());
+        }
+    }
+
+    @Test
+    void symmetricStreamingTampered() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[] c = Operations.symmetricEncrypt(bytes(100000), pw);
+        c[70000] ^= 1;
+        assertFalse(Operations.symmetricDecrypt(new ByteArrayInputStream(c), new ByteArrayOutputStream(), pw));
+        assertFalse(Operations.symmetricDecrypt(new ByteArrayInputStream(new byte[127]),
+                new ByteArrayOutputStream(), pw));
+    }
+
+    @Test
+    void batchAuthentication() {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[][] ms = new byte[50][];
+        for (int i = 0; i < ms.length; i++) {
+            ms[i] = bytes(rand.nextInt(1000));
+        }
+        byte[][] tags = Operations.authentication(ms, pw);
+        for (int i = 0; i < ms.length; i++) {
+            assertArrayEquals(Operations.authentication(ms[i], pw), tags[i]);
+        }
+    }
+
+    @Test
+    void asymmetricRoundTrip() {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[] pub = Operations.keyPair(pw);
+        byte[] m = bytes(300);
+        assertArrayEquals(m, Operations.asDecrypt(Operations.asEncrypt(m, pub), pw));
+    }
+
+    @Test
+    void asymmetricStreaming() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[] pub = Operations.keyPair(pw);
+        for (int len : new int[] {0, 100, 65536 + 64, 150000}) {
+            byte[] m = bytes(len);
+            ByteArrayOutputStream c = new ByteArrayOutputStream();
+            Operations.asEncrypt(new ByteArrayInputStream(m), c, pub);
+            assertArrayEquals(m, Operations.asDecrypt(c.toByteArray(), pw));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertTrue(Operations.asDecrypt(new ByteArrayInputStream(Operations.asEncrypt(m, pub)), out, pw));
+            assertArrayEquals(m, out.toByteArray());
+        }
+    }
+
+    @Test
+    void envelopeRoundTrip() throws IOException {
+        byte[][] pws = new byte[5][];
+        byte[][] pubs = new byte[pws.length][];
+        for (int i = 0; i < pws.length; i++) {
+            pws[i] = ("password" + i).getBytes(StandardCharsets.UTF_8);
+            pubs[i] = Operations.keyPair(pws[i]);
+        }
+        byte[] other = "other".getBytes(StandardCharsets.UTF_8);
+        for (int len : new int[] {0, 100, 65536 + 64, 150000}) {
+            byte[] m = bytes(len);
+            byte[] c = Operations.envelopeEncrypt(m, pubs);
+            assertEquals(67 + 4 + 128 * pubs.length + 128 + len, c.length);
+            for (byte[] pw : pws) {
+                assertArrayEquals(m, Operations.envelopeDecrypt(c, pw));
+            }
+            assertNull(Operations.envelopeDecrypt(c, other));
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            Operations.envelopeEncrypt(new ByteArrayInputStream(m), streamed, pubs);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertTrue(Operations.envelopeDecrypt(new ByteArrayInputStream(streamed.toByteArray()), out, pws[3]));
+            assertArrayEquals(m, out.toByteArray());
+        }
+    }
+
+    @Test
+    void envelopeTampered() {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[][] pubs = {Operations.keyPair("other".getBytes(StandardCharsets.UTF_8)), Operations.keyPair(pw)};
+        byte[] c = Operations.envelopeEncrypt(bytes(300), pubs);
+        for (int pos : new int[] {70, 67 + 4 + 128 + 10, 67 + 4 + 256 + 10, c.length - 1}) {
+            byte[] bad = c.clone();
+            bad[pos] ^= 1;
+            assertNull(Operations.envelopeDecrypt(bad, pw));
+        }
+        assertNull(Operations.envelopeDecrypt(Arrays.copyOf(c, 67 + 4 + 200), pw));
+        assertNull(Operations.envelopeDecrypt(new byte[10], pw));
+        assertThrows(IllegalArgumentException.class, () -> Operations.envelopeEncrypt(bytes(10), new byte[0][]));
+    }
+
+    @Test
+    void decryptToFile() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[] m = bytes(200000);
+        Path out = dir.resolve("m");
+        assertTrue(Operations.symmetricDecrypt(new ByteArrayInputStream(Operations.symmetricEncrypt(m, pw)),
+                out, pw));
+        assertArrayEquals(m, Files.readAllBytes(out));
+        byte[] pub = Operations.keyPair(pw);
+        assertTrue(Operations.asDecrypt(new ByteArrayInputStream(Operations.asEncrypt(m, pub)), out, pw));
+        assertArrayEquals(m, Files.readAllBytes(out));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void failedDecryptToFileLeavesOutput() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        Path out = dir.resolve("m");
+        Files.write(out, "old".getBytes(StandardCharsets.UTF_8));
+        byte[] c = Operations.symmetricEncrypt(bytes(200000), pw);
+        c[c.length - 1] ^= 1;
+        assertFalse(Operations.symmetricDecrypt(new ByteArrayInputStream(c), out, pw));
+        assertFalse(Operations.asDecrypt(new ByteArrayInputStream(c), out, pw));
+        assertEquals("old", Files.readString(out));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void signatureRoundTrip() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[] m = bytes(300);
+        byte[] sig = Operations.createSig(m, pw);
+        assertTrue(Operations.verifySig(sig, m, Operations.keyPair(pw)));
+        Path file = dir.resolve("m");
+        Files.write(file, m);
+        assertTrue(Operations.verifySig(sig, file, Operations.keyPair(pw)));
+        assertFalse(Operations.verifySig(sig, bytes(300), Operations.keyPair(pw)));
+    }
+
+    @Test
+    void signerMatchesCreateSig() throws IOException {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        byte[] key = Operations.keyPair(pw);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Signer signer = new Signer(pw, pool);
+            byte[][] ms = new byte[10][];
+            List<Path> files = new ArrayList<>();
+            for (int i = 0; i < ms.length; i++) {
+                ms[i] = bytes(rand.nextInt(1000));
+                files.add(dir.resolve("m" + i));
+                Files.write(files.get(i), ms[i]);
+            }
+            byte[][] sigs = signer.signAll(ms);
+            byte[][] fileSigs = signer.signAll(files);
+            for (int i = 0; i < ms.length; i++) {
+                //Signatures are deterministic, so all ways of signing give the same bytes.
+                assertArrayEquals(Operations.createSig(ms[i], pw), sigs[i]);
+                assertArrayEquals(sigs[i], fileSigs[i]);
+                assertTrue(Operations.verifySig(sigs[i], ms[i], key));
+            }
+            assertThrows(IOException.class, () -> signer.signAll(List.of(dir.resolve("missing"))));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void batchVerifyMatchesSingle() {
+        int n = 20;
+        byte[][] pws = new byte[3][];
+        byte[][] keys = new byte[3][];
+        for (int i = 0; i < pws.length; i++) {
+            pws[i] = bytes(16);
+            keys[i] = Operations.keyPair(pws[i]);
+        }
+        byte[][] sigs = new byte[n][];
+        byte[][] ms = new byte[n][];
+        byte[][] pubs = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            ms[i] = bytes(rand.nextInt(500));
+            sigs[i] = Operations.createSig(ms[i], pws[i % pws.length]);
+            //Copy the key so that equal keys in different arrays are still recognized as the same.
+            pubs[i] = Arrays.copyOf(keys[i % keys.length], 67);
+        }
+        //Tamper with a few: wrong data, wrong key, corrupted z, invalid key, and a short signature.
+        ms[3] = bytes(10);
+        pubs[5] = keys[(5 + 1) % keys.length];
+        sigs[8][100] ^= 1;
+        pubs[11] = new byte[67];
+        pubs[11][0] = 5;
+        sigs[14] = Arrays.copyOf(sigs[14], 100);
+        boolean[] valid = Operations.verifySigs(sigs, ms, pubs);
+        for (int i = 0; i < n; i++) {
+            boolean expected = i != 3 && i != 5 && i != 8 && i != 11 && i != 14;
+            assertEquals(expected, valid[i], "signature " + i);
+            if (i != 11 && i != 14) {
+                assertEquals(Operations.verifySig(sigs[i], ms[i], pubs[i]), valid[i]);
+            }
+        }
+    }
+
+    @Test
+    void batchVerifyEmpty() {
+        assertEquals(0, Operations.verifySigs(new byte[0][], new byte[0][], new byte[0][]).length);
+    }
+
+    @Test
+    void batchVerifyLengthMismatch() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Operations.verifySigs(new byte[1][], new byte[2][], new byte[1][]));
+    }
+}
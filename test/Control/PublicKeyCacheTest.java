@@ -0,0 +1,66 @@
+package Control;
+
+import Model.E521CurvePoint;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicKeyCacheTest {
+
+    private final byte[] key1 = Operations.keyPair("password".getBytes(StandardCharsets.UTF_8));
+
+    private final byte[] key2 = Operations.keyPair("other".getBytes(StandardCharsets.UTF_8));
+
+    private final byte[] key3 = Operations.keyPair("third".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void matchesDecodePoint() {
+        PublicKeyCache cache = new PublicKeyCache(4);
+        E521CurvePoint v = cache.get(key1);
+        assertTrue(Operations.decodePoint(key1, 0).equals(v));
+        assertSame(v, cache.get(key1.clone()));
+        assertSame(v, cache.get(Arrays.copyOf(key1, 80)));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void invalidKeysNotCached() {
+        PublicKeyCache cache = new PublicKeyCache(4);
+        byte[] bad = new byte[67];
+        bad[65] = 3;
+        assertThrows(IllegalArgumentException.class, () -> cache.get(bad));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(new byte[66]));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedDropped() {
+        PublicKeyCache cache = new PublicKeyCache(2);
+        E521CurvePoint v1 = cache.get(key1);
+        E521CurvePoint v2 = cache.get(key2);
+        cache.get(key1);
+        cache.get(key3);
+        assertEquals(2, cache.size());
+        //key2 was dropped, key1 was kept.
+        assertSame(v1, cache.get(key1));
+        assertNotSame(v2, cache.get(key2));
+        assertEquals(4, cache.misses());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void repeatEncryptions() {
+        byte[] pw = "password".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 3; i++) {
+            byte[] m = ("message " + i).getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(m, Operations.asDecrypt(Operations.asEncrypt(m, key1), pw));
+            assertTrue(Operations.verifySig(Operations.createSig(m, pw), m, key1));
+        }
+    }
+}
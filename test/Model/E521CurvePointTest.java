@@ -113,4 +113,118 @@ class E521CurvePointTest {
         }
     }
 
+    @Test
+    void fixedBaseVSvariableBase() {
+        Random r = new Random();
+        E521CurvePoint g2 = E521CurvePoint.g.scalarMultiply(BigInteger.TWO);
+        for(int i = 0; i < 20; i++) {
+            BigInteger k = new BigInteger(520, r);
+            E521CurvePoint p1 = E521CurvePoint.g.scalarMultiply(k.shiftLeft(1));
+            E521CurvePoint p2 = g2.scalarMultiply(k);
+            assertTrue(p1.equals(p2));
+            assertTrue(E521CurvePoint.g.scalarMultiply(k.negate()).add(E521CurvePoint.g.scalarMultiply(k))
+                    .equals(neutralPoint));
+        }
+    }
+
+    @Test
+    void multiScalar() {
+        Random r = new Random();
+        for(int i = 0; i < 20; i++) {
+            BigInteger a = new BigInteger(520, r);
+            BigInteger b = new BigInteger(520, r);
+            BigInteger c = new BigInteger(64, r).negate();
+            E521CurvePoint v = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+            E521CurvePoint w = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+            E521CurvePoint p1 = E521CurvePoint.multiScalar(new BigInteger[] {a, b, c},
+                    new E521CurvePoint[] {E521CurvePoint.g, v, w});
+            E521CurvePoint p2 = E521CurvePoint.g.scalarMultiply(a).add(v.scalarMultiply(b))
+                    .add(w.scalarMultiply(c));
+            assertTrue(p1.equals(p2));
+        }
+        assertTrue(E521CurvePoint.multiScalar(new BigInteger[0], new E521CurvePoint[0]).equals(neutralPoint));
+    }
+
+    @Test
+    void secretVSscalarMultiply() {
+        Random r = new Random();
+        //(1, 0) has order 4, so adding it gives points outside the subgroup of order r.
+        E521CurvePoint t4 = new E521CurvePoint(BigInteger.ONE, BigInteger.ZERO);
+        for(int i = 0; i < 20; i++) {
+            BigInteger k = new BigInteger(530, r);
+            if (i % 2 == 0) k = k.negate();
+            E521CurvePoint v = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+            E521CurvePoint w = v.add(t4);
+            assertTrue(E521CurvePoint.g.scalarMultiply(k).equals(E521CurvePoint.g.scalarMultiplySecret(k)));
+            assertTrue(v.scalarMultiply(k).equals(v.scalarMultiplySecret(k)));
+            assertTrue(w.scalarMultiply(k).equals(w.scalarMultiplySecret(k)));
+        }
+        assertTrue(E521CurvePoint.g.scalarMultiplySecret(BigInteger.ZERO).equals(neutralPoint));
+        assertTrue(E521CurvePoint.g.scalarMultiplySecret(BigInteger.ONE).equals(E521CurvePoint.g));
+        assertTrue(E521CurvePoint.g.scalarMultiplySecret(E521CurvePoint.r).equals(neutralPoint));
+        assertTrue(t4.scalarMultiplySecret(BigInteger.TWO).equals(new E521CurvePoint(BigInteger.ZERO,
+                BigInteger.ONE.negate())));
+        assertTrue(neutralPoint.scalarMultiplySecret(BigInteger.TEN).equals(neutralPoint));
+    }
+
+    @Test
+    void precomputedSecretVSscalarMultiply() {
+        Random r = new Random();
+        E521CurvePoint t4 = new E521CurvePoint(BigInteger.ONE, BigInteger.ZERO);
+        E521CurvePoint v = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+        E521CurvePoint w = v.add(t4).precompute();
+        assertSame(v, v.precompute());
+        for(int i = 0; i < 20; i++) {
+            BigInteger k = new BigInteger(530, r);
+            if (i % 2 == 0) k = k.negate();
+            if (i % 3 == 0) k = k.setBit(0);
+            if (i % 5 == 0) k = k.clearBit(0);
+            assertTrue(v.scalarMultiply(k).equals(v.scalarMultiplySecret(k)));
+            assertTrue(w.scalarMultiply(k).equals(w.scalarMultiplySecret(k)));
+        }
+        BigInteger n = E521CurvePoint.r.shiftLeft(2);
+        assertTrue(v.scalarMultiplySecret(BigInteger.ZERO).equals(neutralPoint));
+        assertTrue(v.scalarMultiplySecret(BigInteger.ONE).equals(v));
+        assertTrue(v.scalarMultiplySecret(E521CurvePoint.r).equals(neutralPoint));
+        assertTrue(w.scalarMultiplySecret(n).equals(neutralPoint));
+        assertTrue(w.scalarMultiplySecret(n.subtract(BigInteger.ONE))
+                .equals(w.scalarMultiply(BigInteger.ONE.negate())));
+        assertTrue(t4.precompute().scalarMultiplySecret(BigInteger.TWO).equals(new E521CurvePoint(BigInteger.ZERO,
+                BigInteger.ONE.negate())));
+        assertTrue(E521CurvePoint.multiScalar(new BigInteger[] {BigInteger.TEN, BigInteger.TWO},
+                new E521CurvePoint[] {v, E521CurvePoint.g}).equals(v.scalarMultiply(BigInteger.TEN)
+                .add(E521CurvePoint.g.scalarMultiply(BigInteger.TWO))));
+    }
+
+    @Test
+    void decompress() {
+        Random r = new Random();
+        BigInteger[] xs = new BigInteger[30];
+        boolean[] lsbs = new boolean[xs.length];
+        E521CurvePoint[] expected = new E521CurvePoint[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            E521CurvePoint v = E521CurvePoint.g.scalarMultiply(new BigInteger(512, r));
+            xs[i] = v.getX();
+            lsbs[i] = i % 3 == 0 ? !v.getY().testBit(0) : v.getY().testBit(0);
+            expected[i] = i % 3 == 0 ? new E521CurvePoint(v.getX(), E521CurvePoint.p.subtract(v.getY())) : v;
+            assertTrue(expected[i].equals(new E521CurvePoint(xs[i], lsbs[i])));
+        }
+        //x = 1 gives y = 0 whichever bit is asked for, and 3 is not the x coordinate of any point.
+        xs[1] = BigInteger.ONE;
+        expected[1] = new E521CurvePoint(BigInteger.ONE, BigInteger.ZERO);
+        xs[2] = BigInteger.valueOf(3);
+        expected[2] = null;
+        assertTrue(expected[1].equals(new E521CurvePoint(BigInteger.ONE, true)));
+        assertThrows(IllegalArgumentException.class, () -> new E521CurvePoint(BigInteger.valueOf(3), false));
+        E521CurvePoint[] out = E521CurvePoint.decompress(xs, lsbs);
+        for (int i = 0; i < xs.length; i++) {
+            if (expected[i] == null) {
+                assertNull(out[i]);
+            } else {
+                assertTrue(expected[i].equals(out[i]));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> E521CurvePoint.decompress(xs, new boolean[1]));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class E521FieldTest {
+
+    private final BigInteger p = E521CurvePoint.p;
+
+    private final Random r = new Random();
+
+    private BigInteger random() {
+        return new BigInteger(521, r).mod(p);
+    }
+
+    /**
+     * Builds a field element with every limb at its maximum loosely reduced size, the worst case for overflow.
+     */
+    private long[] largest() {
+        long[] z = E521Field.create();
+        for (int i = 0; i < E521Field.LIMBS; i++) {
+            z[i] = (1L << 58) + 1;
+        }
+        return z;
+    }
+
+    private BigInteger value(long[] x) {
+        BigInteger v = BigInteger.ZERO;
+        for (int i = E521Field.LIMBS - 1; i >= 0; i--) {
+            v = v.shiftLeft(58).add(BigInteger.valueOf(x[i]));
+        }
+        return v.mod(p);
+    }
+
+    @Test
+    void roundTrip() {
+        for (int i = 0; i < 100; i++) {
+            BigInteger a = random();
+            assertEquals(a, E521Field.toBigInteger(E521Field.fromBigInteger(a)));
+        }
+        assertEquals(BigInteger.ZERO, E521Field.toBigInteger(E521Field.fromBigInteger(p)));
+        assertEquals(p.subtract(BigInteger.ONE),
+                E521Field.toBigInteger(E521Field.fromBigInteger(BigInteger.ONE.negate())));
+    }
+
+    @Test
+    void arithmetic() {
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = random();
+            BigInteger b = random();
+            long[] x = E521Field.fromBigInteger(a);
+            long[] y = E521Field.fromBigInteger(b);
+            long[] z = E521Field.create();
+            E521Field.add(z, x, y);
+            assertEquals(a.add(b).mod(p), E521Field.toBigInteger(z));
+            E521Field.sub(z, x, y);
+            assertEquals(a.subtract(b).mod(p), E521Field.toBigInteger(z));
+            E521Field.neg(z, x);
+            assertEquals(a.negate().mod(p), E521Field.toBigInteger(z));
+            E521Field.mul(z, x, y);
+            assertEquals(a.multiply(b).mod(p), E521Field.toBigInteger(z));
+            E521Field.sqr(z, x);
+            assertEquals(a.multiply(a).mod(p), E521Field.toBigInteger(z));
+            E521Field.mulSmall(z, x, 376014);
+            assertEquals(a.multiply(BigInteger.valueOf(376014)).mod(p), E521Field.toBigInteger(z));
+        }
+    }
+
+    @Test
+    void largestLimbs() {
+        long[] x = largest();
+        BigInteger a = value(x);
+        long[] z = E521Field.create();
+        E521Field.mul(z, x, x);
+        assertEquals(a.multiply(a).mod(p), E521Field.toBigInteger(z));
+        E521Field.sqr(z, x);
+        assertEquals(a.multiply(a).mod(p), E521Field.toBigInteger(z));
+        E521Field.sub(z, E521Field.create(), x);
+        assertEquals(a.negate().mod(p), E521Field.toBigInteger(z));
+    }
+
+    @Test
+    void aliasing() {
+        BigInteger a = random();
+        BigInteger b = random();
+        long[] x = E521Field.fromBigInteger(a);
+        long[] y = E521Field.fromBigInteger(b);
+        E521Field.mul(x, x, y);
+        assertEquals(a.multiply(b).mod(p), E521Field.toBigInteger(x));
+        E521Field.sqr(y, y);
+        assertEquals(b.multiply(b).mod(p), E521Field.toBigInteger(y));
+    }
+
+    @Test
+    void invert() {
+        for (int i = 0; i < 20; i++) {
+            BigInteger a = random();
+            long[] z = E521Field.create();
+            E521Field.invert(z, E521Field.fromBigInteger(a));
+            assertEquals(a.modInverse(p), E521Field.toBigInteger(z));
+        }
+    }
+
+    @Test
+    void equality() {
+        BigInteger a = random();
+        long[] x = E521Field.fromBigInteger(a);
+        long[] y = E521Field.create();
+        //Subtracting goes through 4p, which can leave an equal value with a different representation.
+        E521Field.add(y, x, E521Field.fromBigInteger(BigInteger.ONE));
+        E521Field.sub(y, y, E521Field.fromBigInteger(BigInteger.ONE));
+        assertTrue(E521Field.equal(x, y));
+        assertTrue(E521Field.isZero(E521Field.create()));
+        assertFalse(E521Field.isZero(x));
+    }
+    @Test
+    void invertMany() {
+        long[][] x = new long[10][];
+        BigInteger[] a = new BigInteger[x.length];
+        for (int i = 0; i < x.length; i++) {
+            a[i] = random();
+            x[i] = E521Field.fromBigInteger(a[i]);
+        }
+        E521Field.invert(x, x);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(a[i].modInverse(p), E521Field.toBigInteger(x[i]));
+        }
+        E521Field.invert(new long[0][], new long[0][]);
+    }
+
+    @Test
+    void squareRoots() {
+        for (int i = 0; i < 20; i++) {
+            BigInteger a = random();
+            BigInteger b = random();
+            long[] z = E521Field.create();
+            //a^2 always has a root, -a^2 never does since -1 is not a square mod p.
+            assertTrue(E521Field.sqrt(z, E521Field.fromBigInteger(a.multiply(a))));
+            assertEquals(a.multiply(a).mod(p), E521Field.toBigInteger(z).pow(2).mod(p));
+            assertFalse(E521Field.sqrt(z, E521Field.fromBigInteger(a.multiply(a).negate())));
+            //(a^2 b) / b has a root, and so does a^2 / b^2 since b^2 / b^2 = 1.
+            BigInteger u = a.multiply(a).multiply(b).mod(p);
+            assertTrue(E521Field.sqrtRatio(z, E521Field.fromBigInteger(u), E521Field.fromBigInteger(b)));
+            assertEquals(u, E521Field.toBigInteger(z).pow(2).multiply(b).mod(p));
+            assertFalse(E521Field.sqrtRatio(z, E521Field.fromBigInteger(u.negate()), E521Field.fromBigInteger(b)));
+        }
+        long[] z = E521Field.create();
+        assertTrue(E521Field.sqrtRatio(z, E521Field.create(), E521Field.create(3)));
+        assertTrue(E521Field.isZero(z));
+    }
+
+}
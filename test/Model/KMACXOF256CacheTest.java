@@ -0,0 +1,70 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KMACXOF256CacheTest {
+
+    private final byte[] tagged = "T".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void matchesCompute() {
+        KMACXOF256Cache cache = new KMACXOF256Cache(4);
+        Random r = new Random();
+        byte[][] keys = new byte[6][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new byte[r.nextInt(100)];
+            r.nextBytes(keys[i]);
+        }
+        for (int i = 0; i < 100; i++) {
+            byte[] k = keys[r.nextInt(keys.length)];
+            byte[] x = new byte[r.nextInt(500)];
+            r.nextBytes(x);
+            assertArrayEquals(KMACXOF256.compute(k, x, 512, tagged), cache.compute(k, x, 512, tagged));
+            assertTrue(cache.size() <= 4);
+        }
+    }
+
+    @Test
+    void keyAndCustomizationKeptApart() {
+        //The same bytes split differently between key and customization string must not share a state.
+        KMACXOF256Cache cache = new KMACXOF256Cache(4);
+        byte[] x = "data".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(KMACXOF256.compute(new byte[] {1, 2}, x, 256, new byte[] {3}),
+                cache.compute(new byte[] {1, 2}, x, 256, new byte[] {3}));
+        assertArrayEquals(KMACXOF256.compute(new byte[] {2}, x, 256, new byte[] {3, 1}),
+                cache.compute(new byte[] {2}, x, 256, new byte[] {3, 1}));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedDropped() {
+        KMACXOF256Cache cache = new KMACXOF256Cache(2);
+        cache.get(new byte[] {1}, tagged);
+        cache.get(new byte[] {2}, tagged);
+        cache.get(new byte[] {1}, tagged);
+        cache.get(new byte[] {3}, tagged);
+        assertEquals(2, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        KMACXOF256 keyed = new KMACXOF256("key".getBytes(StandardCharsets.UTF_8), tagged);
+        KMACXOF256 a = keyed.copy();
+        KMACXOF256 b = keyed.copy();
+        a.update(new byte[] {1});
+        b.update(new byte[] {2});
+        assertArrayEquals(KMACXOF256.compute("key".getBytes(StandardCharsets.UTF_8), new byte[] {1}, 512, tagged),
+                a.squeeze(64));
+        assertArrayEquals(KMACXOF256.compute("key".getBytes(StandardCharsets.UTF_8), new byte[] {2}, 512, tagged),
+                b.squeeze(64));
+        assertArrayEquals(KMACXOF256.compute("key".getBytes(StandardCharsets.UTF_8), new byte[0], 512, tagged),
+                keyed.squeeze(64));
+    }
+}
@@ -0,0 +1,149 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KMACXOF256Test {
+
+    private final byte[] key = range(0x40, 32);
+
+    private final byte[] tagged = "My Tagged Application".getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] range(int start, int len) {
+        byte[] out = new byte[len];
+        for (int i = 0; i < len; i++) {
+            out[i] = (byte) (start + i);
+        }
+        return out;
+    }
+
+    private static byte[] hex(String s) {
+        byte[] out = new byte[s.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
+        }
+        return out;
+    }
+
+    @Test
+    void nistSample4() {
+        assertArrayEquals(hex("1755133F1534752AAD0748F2C706FB5C784512CAB835CD15676B16C0C6647FA9" +
+                        "6FAA7AF634A0BF8FF6DF39374FA00FAD9A39E322A7C92065A64EB1FB0801EB2B"),
+                KMACXOF256.compute(key, range(0, 4), 512, tagged));
+    }
+
+    @Test
+    void nistSample5() {
+        assertArrayEquals(hex("FF7B171F1E8A2B24683EED37830EE797538BA8DC563F6DA1E667391A75EDC02C" +
+                        "A633079F81CE12A25F45615EC89972031D18337331D24CEB8F8CA8E6A19FD98B"),
+                KMACXOF256.compute(key, range(0, 200), 512, new byte[0]));
+    }
+
+    @Test
+    void nistSample6() {
+        assertArrayEquals(hex("D5BE731C954ED7732846BB59DBE3A8E30F83E77A4BFF4459F2F1C2B4ECEBB8CE" +
+                        "67BA01C62E8AB8578D2D499BD1BB276768781190020A306A97DE281DCC30305D"),
+                KMACXOF256.compute(key, range(0, 200), 512, tagged));
+    }
+
+    @Test
+    void paddingAtBlockEnd() {
+        //133 bytes of data plus the right encoded output length fill the block up to its last byte.
+        byte[] x = new byte[133];
+        for (int i = 0; i < x.length; i++) x[i] = (byte) (i * 7 + 3);
+        assertArrayEquals(hex("CAC8F89CAB8E4B0D30A1E47556ABDC9F32644D16E72D8CA632EB87EB20780984" +
+                        "F475C38BABE372A0A1C290787091C6D2991A89DF32A175DFFD06FCFF246E5DF7"),
+                KMACXOF256.compute("key".getBytes(StandardCharsets.UTF_8), x, 512,
+                        "T".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void streamingMatchesCompute() {
+        Random r = new Random();
+        for (int i = 0; i < 50; i++) {
+            byte[] x = new byte[r.nextInt(2000)];
+            r.nextBytes(x);
+            byte[] expected = KMACXOF256.compute(key, x, 2400, tagged);
+            KMACXOF256 kmac = new KMACXOF256(key, tagged);
+            int off = 0;
+            while (off < x.length) {
+                int len = Math.min(r.nextInt(300), x.length - off);
+                if (len % 3 == 0) {
+                    kmac.update(x, off, len);
+                } else if (len % 3 == 1) {
+                    kmac.update(ByteBuffer.wrap(x, off, len));
+                } else {
+                    ByteBuffer direct = ByteBuffer.allocateDirect(len + 3);
+                    direct.position(3);
+                    direct.put(x, off, len).position(3);
+                    kmac.update(direct);
+                }
+                off += len;
+            }
+            byte[] out = new byte[expected.length];
+            off = 0;
+            while (off < out.length) {
+                int len = Math.min(r.nextInt(200), out.length - off);
+                kmac.squeeze(out, off, len);
+                off += len;
+            }
+            assertArrayEquals(expected, out);
+        }
+    }
+
+    @Test
+    void updateAfterSqueeze() {
+        KMACXOF256 kmac = new KMACXOF256(key, tagged);
+        kmac.squeeze(64);
+        assertThrows(IllegalStateException.class, () -> kmac.update(new byte[1]));
+    }
+
+    @Test
+    void batchMatchesCompute() {
+        Random r = new Random();
+        byte[][] keys = new byte[100][];
+        byte[][] xs = new byte[100][];
+        for (int i = 0; i < xs.length; i++) {
+            keys[i] = new byte[r.nextInt(200)];
+            r.nextBytes(keys[i]);
+            //Equal keys in different arrays, as a caller reading keys from strings or files would have.
+            if (i % 3 == 2) keys[i] = keys[i - 1].clone();
+            xs[i] = new byte[r.nextInt(1000)];
+            r.nextBytes(xs[i]);
+        }
+        byte[][] out = KMACXOF256.computeBatch(keys, xs, 512, tagged);
+        for (int i = 0; i < xs.length; i++) {
+            assertArrayEquals(KMACXOF256.compute(keys[i], xs[i], 512, tagged), out[i]);
+        }
+        assertEquals(0, KMACXOF256.computeBatch(keys, xs, 0, tagged)[0].length);
+        assertThrows(IllegalArgumentException.class, () -> KMACXOF256.computeBatch(keys, new byte[1][], 512, tagged));
+    }
+
+    @Test
+    void reusedInstanceMatchesCompute() {
+        Random r = new Random();
+        byte[] x = new byte[300];
+        r.nextBytes(x);
+        byte[] out = new byte[64];
+        //Key lengths around 131 fill the key block exactly, leaving nothing for bytepad to add.
+        for (int len = 0; len < 300; len++) {
+            byte[] k = new byte[len];
+            r.nextBytes(k);
+            KMACXOF256 keyed = new KMACXOF256(k, tagged);
+            KMACXOF256 kmac = keyed.copy();
+            for (int i = 0; i < 2; i++) {
+                kmac.set(keyed);
+                kmac.update(x, 0, len);
+                kmac.squeeze(out, 0, out.length);
+                assertArrayEquals(KMACXOF256.compute(k, Arrays.copyOf(x, len), 512, tagged), out);
+            }
+        }
+    }
+
+}
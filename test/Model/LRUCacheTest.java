@@ -0,0 +1,43 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LRUCacheTest {
+
+    @Test
+    void leastRecentlyUsedRemoved() {
+        List<Integer> removed = new ArrayList<>();
+        LRUCache<Integer, String> cache = new LRUCache<>(2, (k, v) -> removed.add(k));
+        assertNull(cache.putIfAbsent(1, "a"));
+        assertNull(cache.putIfAbsent(2, "b"));
+        assertEquals("a", cache.get(1));
+        assertNull(cache.putIfAbsent(3, "c"));
+        assertEquals(List.of(2), removed);
+        assertNull(cache.get(2));
+        assertEquals(2, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(3, removed.size());
+        assertTrue(removed.containsAll(List.of(1, 3)));
+    }
+
+    @Test
+    void presentKeyKept() {
+        List<Integer> removed = new ArrayList<>();
+        LRUCache<Integer, String> cache = new LRUCache<>(1, (k, v) -> removed.add(k));
+        assertNull(cache.putIfAbsent(1, "a"));
+        assertEquals("a", cache.putIfAbsent(1, "b"));
+        assertEquals("a", cache.get(1));
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new LRUCache<Integer, String>(0));
+    }
+}
@@ -0,0 +1,132 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelHash256Test {
+
+    private final byte[] sample = hex("000102030405060710111213141516172021222324252627");
+
+    private final byte[] sample6 = hex("000102030405060708090A0B101112131415161718191A1B202122232425262728292A2B" +
+            "303132333435363738393A3B404142434445464748494A4B505152535455565758595A5B");
+
+    private final byte[] parallelData = "Parallel Data".getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] hex(String s) {
+        byte[] out = new byte[s.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
+        }
+        return out;
+    }
+
+    private static byte[] data(int len) {
+        byte[] x = new byte[len];
+        for (int i = 0; i < len; i++) x[i] = (byte) (i * 7 + 3);
+        return x;
+    }
+
+    @Test
+    void nistSample1() {
+        assertArrayEquals(hex("BC1EF124DA34495E948EAD207DD9842235DA432D2BBC54B4C110E64C45110553" +
+                        "1B7F2A3E0CE055C02805E7C2DE1FB746AF97A1DD01F43B824E31B87612410429"),
+                ParallelHash256.compute(sample, 8, 512, new byte[0]));
+    }
+
+    @Test
+    void nistSample2() {
+        assertArrayEquals(hex("CDF15289B54F6212B4BC270528B49526006DD9B54E2B6ADD1EF6900DDA3963BB" +
+                        "33A72491F236969CA8AFAEA29C682D47A393C065B38E29FAE651A2091C833110"),
+                ParallelHash256.compute(sample, 8, 512, parallelData));
+    }
+
+    @Test
+    void nistSample3() {
+        assertArrayEquals(hex("69D0FCB764EA055DD09334BC6021CB7E4B61348DFF375DA262671CDEC3EFFA8D" +
+                        "1B4568A6CCE16B1CAD946DDDE27F6CE2B8DEE4CD1B24851EBF00EB90D43813E9"),
+                ParallelHash256.compute(sample6, 12, 512, parallelData));
+    }
+
+    @Test
+    void nistXofSample1() {
+        assertArrayEquals(hex("C10A052722614684144D28474850B410757E3CBA87651BA167A5CBDDFF7F4666" +
+                        "75FBF84BCAE7378AC444BE681D729499AFCA667FB879348BFDDA427863C82F1C"),
+                ParallelHash256.computeXof(sample, 8, 512, new byte[0]));
+    }
+
+    @Test
+    void nistXofSample2() {
+        assertArrayEquals(hex("538E105F1A22F44ED2F5CC1674FBD40BE803D9C99BF5F8D90A2C8193F3FE6EA7" +
+                        "68E5C1A20987E2C9C65FEBED03887A51D35624ED12377594B5585541DC377EFC"),
+                ParallelHash256.computeXof(sample, 8, 512, parallelData));
+    }
+
+    @Test
+    void nistXofSample3() {
+        assertArrayEquals(hex("6B3E790B330C889A204C2FBC728D809F19367328D852F4002DC829F73AFD6BCE" +
+                        "FB7FE5B607B13A801C0BE5C1170BDB794E339458FDB0E62A6AF3D42558970249"),
+                ParallelHash256.computeXof(sample6, 12, 512, parallelData));
+    }
+
+    @Test
+    void manyBlocks() {
+        //Expected values computed with an independent implementation of the specification.
+        assertArrayEquals(hex("469B154593331BE2906C4F629BE8065177E6EF43FAFB80A76B0FFDED92F04680"),
+                ParallelHash256.compute(data(10000), 1024, 256, "T".getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(hex("FE94D54EC0A5083A8880B4B4102BA049708ED8D2FD83F489FA5490BA9BF994AB" +
+                        "35D8DAA2340BBDB9B7B010851DF783C7954AF215F8EBC5FE3A206602077CB384"),
+                ParallelHash256.compute(new byte[0], 8192, 512, new byte[0]));
+    }
+
+    @Test
+    void streamingMatchesCompute() {
+        Random r = new Random();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < 30; i++) {
+                int b = 1 + r.nextInt(300);
+                byte[] x = new byte[r.nextInt(20000)];
+                r.nextBytes(x);
+                byte[] expected = ParallelHash256.computeXof(x, b, 2400, parallelData);
+                ParallelHash256 hash = new ParallelHash256(b, parallelData, pool);
+                int off = 0;
+                while (off < x.length) {
+                    int len = Math.min(r.nextInt(3000), x.length - off);
+                    if (len % 2 == 0) {
+                        hash.update(x, off, len);
+                    } else {
+                        ByteBuffer direct = ByteBuffer.allocateDirect(len);
+                        direct.put(x, off, len).flip();
+                        hash.update(direct);
+                    }
+                    off += len;
+                }
+                byte[] out = new byte[expected.length];
+                off = 0;
+                while (off < out.length) {
+                    int len = Math.min(r.nextInt(200), out.length - off);
+                    hash.squeeze(out, off, len);
+                    off += len;
+                }
+                assertArrayEquals(expected, out);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void outputOnlyOnce() {
+        ParallelHash256 hash = new ParallelHash256(8, new byte[0]);
+        hash.digest(256);
+        assertThrows(IllegalStateException.class, () -> hash.digest(256));
+        assertThrows(IllegalStateException.class, () -> hash.squeeze(32));
+        assertThrows(IllegalStateException.class, () -> hash.update(new byte[1]));
+    }
+}
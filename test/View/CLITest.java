@@ -0,0 +1,174 @@
+package View;
+
+import Control.Operations;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CLITest {
+
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+    private int run(byte[] stdin, String... args) {
+        stdout.reset();
+        stderr.reset();
+        return new CLI(new ByteArrayInputStream(stdin), stdout, new PrintStream(stderr)).execute(args);
+    }
+
+    private byte[] data() {
+        byte[] m = new byte[1000];
+        new Random(487).nextBytes(m);
+        return m;
+    }
+
+    private String file(String name) {
+        return dir.resolve(name).toString();
+    }
+
+    @Test
+    void hashFromStdin() {
+        byte[] m = data();
+        assertEquals(CLI.OK, run(m, "hash"));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : Operations.computeHash(m)) hex.append(String.format("%02X", b));
+        assertEquals(hex + System.lineSeparator(), stdout.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void symmetricRoundTrip() throws IOException {
+        byte[] m = data();
+        Files.write(dir.resolve("m"), m);
+        Files.write(dir.resolve("pw"), "password\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.OK, run(new byte[0], "senc", "-i", file("m"), "-o", file("c"), "-p", file("pw")));
+        assertEquals(CLI.OK, run(Files.readAllBytes(dir.resolve("c")), "sdec", "-p", file("pw")));
+        assertArrayEquals(m, stdout.toByteArray());
+        //The trailing line break of the password file is not part of the password.
+        assertArrayEquals(m, Operations.symmetricDecrypt(Files.readAllBytes(dir.resolve("c")),
+                "password".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void failedDecryptWritesNothing() throws IOException {
+        Files.write(dir.resolve("pw"), "password".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("wrong"), "wrong".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("c"), Operations.symmetricEncrypt(data(), "password".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(CLI.INVALID, run(new byte[0], "sdec", "-i", file("c"), "-o", file("m"), "-p", file("wrong")));
+        assertFalse(Files.exists(dir.resolve("m")));
+    }
+
+    @Test
+    void publicKeyRoundTrip() throws IOException {
+        byte[] m = data();
+        Files.write(dir.resolve("pw"), "password".getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.OK, run(new byte[0], "keygen", "-o", file("key"), "-p", file("pw")));
+        assertEquals(CLI.OK, run(m, "penc", "-k", file("key"), "-o", file("c")));
+        assertEquals(CLI.OK, run(new byte[0], "pdec", "-i", file("c"), "-p", file("pw")));
+        assertArrayEquals(m, stdout.toByteArray());
+    }
+
+    @Test
+    void signAndVerify() throws IOException {
+        byte[] m = data();
+        Files.write(dir.resolve("pw"), "password".getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.OK, run(new byte[0], "keygen", "-o", file("key"), "-p", file("pw")));
+        assertEquals(CLI.OK, run(m, "sign", "-o", file("sig"), "-p", file("pw")));
+        assertEquals(CLI.OK, run(m, "verify", "-k", file("key"), "-s", file("sig")));
+        m[0] ^= 1;
+        assertEquals(CLI.INVALID, run(m, "verify", "-k", file("key"), "-s", file("sig")));
+    }
+
+    @Test
+    void signList() throws IOException {
+        Files.write(dir.resolve("pw"), "password".getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.OK, run(new byte[0], "keygen", "-o", file("key"), "-p", file("pw")));
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            Files.write(dir.resolve("m" + i), data());
+            list.append(file("m" + i)).append(System.lineSeparator());
+        }
+        Files.write(dir.resolve("list"), list.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.OK, run(new byte[0], "sign", "-l", file("list"), "-p", file("pw")));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(CLI.OK, run(new byte[0], "verify", "-k", file("key"), "-s", file("m" + i + ".sig"),
+                    "-i", file("m" + i)));
+        }
+    }
+
+    @Test
+    void envelopeRoundTrip() throws IOException {
+        byte[] m = data();
+        Files.write(dir.resolve("m"), m);
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            Files.write(dir.resolve("pw" + i), ("password" + i).getBytes(StandardCharsets.UTF_8));
+            assertEquals(CLI.OK, run(new byte[0], "keygen", "-o", file("key" + i), "-p", file("pw" + i)));
+            list.append(file("key" + i)).append(System.lineSeparator());
+        }
+        Files.write(dir.resolve("keys"), list.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.OK, run(new byte[0], "menc", "-l", file("keys"), "-i", file("m"), "-o", file("c")));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(CLI.OK, run(Files.readAllBytes(dir.resolve("c")), "mdec", "-p", file("pw" + i)));
+            assertArrayEquals(m, stdout.toByteArray());
+        }
+        Files.write(dir.resolve("pw"), "other".getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.INVALID, run(Files.readAllBytes(dir.resolve("c")), "mdec", "-p", file("pw")));
+        assertEquals(CLI.ERROR, run(new byte[0], "menc", "-i", file("m")));
+    }
+
+    @Test
+    void chunkedRange() throws IOException {
+        byte[] m = new byte[300000];
+        new Random(487).nextBytes(m);
+        Files.write(dir.resolve("m"), m);
+        Files.write(dir.resolve("pw"), "password".getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.OK, run(new byte[0], "cenc", "-i", file("m"), "-o", file("c"), "-p", file("pw")));
+        assertEquals(CLI.OK, run(new byte[0], "cdec", "-i", file("c"), "-p", file("pw")));
+        assertArrayEquals(m, stdout.toByteArray());
+        assertEquals(CLI.OK, run(new byte[0], "cdec", "-i", file("c"), "-p", file("pw"), "-r", "65000:1000"));
+        assertArrayEquals(Arrays.copyOfRange(m, 65000, 66000), stdout.toByteArray());
+        assertEquals(CLI.ERROR, run(new byte[0], "cdec", "-i", file("c"), "-p", file("pw"), "-r", "299999:2"));
+        assertEquals(CLI.ERROR, run(new byte[0], "cdec", "-i", file("c"), "-p", file("pw"), "-r", "x"));
+        Files.write(dir.resolve("pw"), "other".getBytes(StandardCharsets.UTF_8));
+        assertEquals(CLI.INVALID, run(new byte[0], "cdec", "-i", file("c"), "-p", file("pw")));
+    }
+
+    @Test
+    void unexpectedErrorIsNotInvalid() {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("broken stream");
+            }
+        };
+        int status = new CLI(failing, stdout, new PrintStream(stderr)).execute(new String[] {"hash"});
+        assertEquals(CLI.ERROR, status);
+        assertTrue(stderr.toString(StandardCharsets.UTF_8).contains("broken stream"));
+    }
+
+    @Test
+    void badArguments() {
+        assertEquals(CLI.ERROR, run(new byte[0]));
+        assertEquals(CLI.ERROR, run(new byte[0], "nope"));
+        assertEquals(CLI.ERROR, run(new byte[0], "hash", "-x", "y"));
+        assertEquals(CLI.ERROR, run(new byte[0], "hash", "-i"));
+        assertEquals(CLI.ERROR, run(new byte[0], "penc"));
+        assertEquals(CLI.ERROR, run(new byte[0], "hash", "-i", file("missing")));
+    }
+}